@@ -0,0 +1,44 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+/**
+ * Represents an uploaded blog image, ready to be shown in an img tag. The browser picks the
+ * smallest variant in srcset that fits where the image is shown, and falls back to src.
+ */
+public class Image {
+
+    private String src;
+    private String srcset;
+    private String caption;
+
+    public Image(String src, String srcset, String caption) {
+        this.src = src;
+        this.srcset = srcset;
+        this.caption = caption;
+    }
+
+    public String getSrc() {
+        return src;
+    }
+
+    public String getSrcset() {
+        return srcset;
+    }
+
+    public String getCaption() {
+        return caption;
+    }
+}
@@ -0,0 +1,37 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.List;
+
+/** One page of the image gallery, newest first, and the cursor for the page after it */
+public class ImagePage {
+
+    private List<Image> images;
+    private String nextCursor; // null on the last page
+
+    public ImagePage(List<Image> images, String nextCursor) {
+        this.images = images;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Image> getImages() {
+        return images;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -16,22 +16,27 @@ package com.google.servlets;
 
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.Entity;
-import com.google.appengine.api.datastore.PreparedQuery;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.Query;
-import com.google.appengine.api.blobstore.BlobInfo;
-import com.google.appengine.api.blobstore.BlobInfoFactory;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.appengine.api.datastore.QueryResultList;
+import com.google.appengine.api.datastore.Transaction;
 import com.google.appengine.api.blobstore.BlobKey;
 import com.google.appengine.api.blobstore.BlobstoreService;
 import com.google.appengine.api.blobstore.BlobstoreServiceFactory;
-import com.google.appengine.api.images.ImagesService;
-import com.google.appengine.api.images.ImagesServiceFactory;
-import com.google.appengine.api.images.ServingUrlOptions;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.MalformedURLException;
-import java.net.URL;
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
 import com.google.gson.Gson;
+import com.google.sps.data.Image;
+import com.google.sps.data.ImagePage;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
@@ -48,35 +53,59 @@ import javax.servlet.http.HttpServletResponse;
 @WebServlet("/file-handler")
 public class FileHandlerServlet extends HttpServlet {
 
-    private static final String IMAGE_DATASTORE_KEY = "Image";
-    private static final String ACCEPTABLE_CONTENT_TYPE = "image";
+    static final String IMAGE_DATASTORE_KEY = "Image";
+    static final String STATUS_PROPERTY = "status";
+    static final String STATUS_PENDING = "pending";
+    static final String STATUS_READY = "ready";
+
+    // Longest side in pixels of each resized variant, and the entity property holding its url.
+    // The images service resizes and caches a variant the first time its url is requested.
+    static final int THUMBNAIL_SIZE = 200;
+    static final int MEDIUM_SIZE = 800;
+    static final int FULL_SIZE = 1600;
+    static final String THUMBNAIL_URL_PROPERTY = "thumbnailUrl";
+    static final String MEDIUM_URL_PROPERTY = "mediumUrl";
+    static final String FULL_URL_PROPERTY = "fullUrl";
+
+    private static final int DEFAULT_PAGE_SIZE = 12;
+    private static final int MAX_PAGE_SIZE = 50;
+
+    // Pages are dropped when a new image is ready. The gallery query is eventually consistent, so
+    // a page built right after that can still miss the new image; the short expiry bounds how
+    // long such a page is served
+    private static final int CACHE_SECONDS = 60;
+    private static final String GENERATION_KEY = "gallery-generation";
 
     /**
-     * Attempts to put image uploaded to blobstore into datastore. Removes blob from blobstore 
-     * if blob is empty or is not an image file type.
+     * Records the image uploaded to blobstore as a pending entity in datastore and queues it to be
+     * processed by {@link ImageProcessingServlet}. Nothing slow happens here, so the upload
+     * callback returns right away; the image shows up on the blog once it has been processed.
      */
     @Override
     public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-        Entity imageEntity = new Entity(IMAGE_DATASTORE_KEY);
-
         BlobstoreService blobstoreService = BlobstoreServiceFactory.getBlobstoreService();
         Map<String, List<BlobKey>> blobs = blobstoreService.getUploads(request);
         List<BlobKey> blobKeys = blobs.get(IMAGE_DATASTORE_KEY);
 
         // Following pattern in docs https://cloud.google.com/appengine/docs/standard/java/blobstore#3_implement_upload_handler
         if (blobKeys != null && !blobKeys.isEmpty()) {
-            BlobKey blobKey = blobKeys.get(0);
-            BlobInfo blobInfo = new BlobInfoFactory().loadBlobInfo(blobKey);
-
-            if (blobInfo.getSize() == 0 || !blobInfo.getContentType().startsWith(ACCEPTABLE_CONTENT_TYPE)) {
-                // Delete blob immediately to prevent it from being orphaned
-                blobstoreService.delete(blobKey);
-            } else {
-                String imageUrl = getUrlfromKey(blobKey).getPath();
-                imageEntity.setProperty("caption", request.getParameter("caption"));
-                imageEntity.setProperty("url", imageUrl);
-                datastore.put(imageEntity);
+            Entity imageEntity = new Entity(IMAGE_DATASTORE_KEY);
+            imageEntity.setProperty("blobKey", blobKeys.get(0));
+            imageEntity.setProperty("caption", request.getParameter("caption"));
+            imageEntity.setProperty(STATUS_PROPERTY, STATUS_PENDING);
+            imageEntity.setProperty("timestamp", System.currentTimeMillis());
+
+            // Save the entity and queue its task together, so that neither exists without the other
+            DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+            Transaction transaction = datastore.beginTransaction();
+            try {
+                Key key = datastore.put(transaction, imageEntity);
+                ImageProcessingServlet.enqueue(transaction, key);
+                transaction.commit();
+            } finally {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
             }
         }
 
@@ -84,33 +113,115 @@ public class FileHandlerServlet extends HttpServlet {
     }
 
     /**
-     * Gets all blobstore image urls from datastore and prints json containing urls to response
+     * Prints json for one page of processed images, newest first: for each image a src, a srcset
+     * listing its resized variants and its caption, plus the cursor of the next page. Takes the
+     * optional parameters "cursor" (from a previous page) and "limit". Pages are cached in
+     * memcache for up to a minute, and dropped as soon as a new image is ready.
      */
     @Override
     public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        Query query = new Query(IMAGE_DATASTORE_KEY);
-        DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-        PreparedQuery results = datastore.prepare(query);
-
-        List<String> imageUrls = new ArrayList<>();
-        for (Entity entity : results.asIterable()) {
-            String url = (String) entity.getProperty("url");
-            imageUrls.add(url);
+        String cursor = request.getParameter("cursor");
+        int limit = getPageSize(request);
+
+        MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+        long generation = getGalleryGeneration(memcache);
+        String cacheKey = "gallery:" + generation + ":" + limit + ":" + cursor;
+        String json = (String) memcache.get(cacheKey);
+
+        if (json == null) {
+            FetchOptions options = FetchOptions.Builder.withLimit(limit);
+            if (cursor != null) {
+                try {
+                    options.startCursor(Cursor.fromWebSafeString(cursor));
+                } catch (IllegalArgumentException e) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid cursor");
+                    return;
+                }
+            }
+
+            // Needs the composite index in datastore-indexes.xml
+            Query query = new Query(IMAGE_DATASTORE_KEY)
+                    .setFilter(new FilterPredicate(
+                            STATUS_PROPERTY, FilterOperator.EQUAL, STATUS_READY))
+                    .addSort("timestamp", SortDirection.DESCENDING);
+            DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+            QueryResultList<Entity> results = datastore.prepare(query).asQueryResultList(options);
+
+            List<Image> images = new ArrayList<>();
+            for (Entity entity : results) {
+                images.add(toImage(entity));
+            }
+            // A short page means there is nothing after it
+            String nextCursor =
+                    results.size() == limit ? results.getCursor().toWebSafeString() : null;
+
+            json = new Gson().toJson(new ImagePage(images, nextCursor));
+
+            // An image that became ready while querying may be missing from this page, so only
+            // cache it if the gallery hasn't changed since the query started
+            if (getGalleryGeneration(memcache) == generation) {
+                memcache.put(cacheKey, json, Expiration.byDeltaSeconds(CACHE_SECONDS));
+            }
         }
 
-        Gson gson = new Gson();
         response.setContentType("application/json;");
-        response.getWriter().println(gson.toJson(imageUrls));
+        response.getWriter().println(json);
     }
 
-    /** 
-     * Returns a URL that points to the uploaded file key
-     * precondition: the blobKey exists (is non-null)
+    /**
+     * Makes every cached gallery page stale, by moving on to a new generation of cache keys. The
+     * old pages are never read again and expire on their own.
      */
-    private URL getUrlfromKey(BlobKey blobKey) throws MalformedURLException {
-        ImagesService imagesService = ImagesServiceFactory.getImagesService();
-        ServingUrlOptions options = ServingUrlOptions.Builder.withBlobKey(blobKey);
+    static void invalidateGalleryCache() {
+        MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+        memcache.increment(GENERATION_KEY, 1, 0L);
+    }
 
-        return new URL(imagesService.getServingUrl(options));
+    private static long getGalleryGeneration(MemcacheService memcache) {
+        Object generation = memcache.get(GENERATION_KEY);
+        return generation != null ? (Long) generation : 0L;
+    }
+
+    /** Parses user-requested page size, defaults to DEFAULT_PAGE_SIZE, capped at MAX_PAGE_SIZE */
+    private int getPageSize(HttpServletRequest request) {
+        String limit = request.getParameter("limit");
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            int requested = Integer.parseInt(limit);
+            return requested > 0 ? Math.min(requested, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        } catch (NumberFormatException e) {
+            return DEFAULT_PAGE_SIZE;
+        }
+    }
+
+    /**
+     * Builds the srcset-ready image for an entity. Entities saved before variants were stored
+     * only have a url, so their variant urls are derived from it the same way.
+     */
+    private static Image toImage(Entity entity) {
+        String url = (String) entity.getProperty("url");
+        String thumbnailUrl = variantUrl(entity, THUMBNAIL_URL_PROPERTY, url, THUMBNAIL_SIZE);
+        String mediumUrl = variantUrl(entity, MEDIUM_URL_PROPERTY, url, MEDIUM_SIZE);
+        String fullUrl = variantUrl(entity, FULL_URL_PROPERTY, url, FULL_SIZE);
+
+        String srcset = thumbnailUrl + " " + THUMBNAIL_SIZE + "w, "
+                + mediumUrl + " " + MEDIUM_SIZE + "w, "
+                + fullUrl + " " + FULL_SIZE + "w";
+        return new Image(mediumUrl, srcset, (String) entity.getProperty("caption"));
+    }
+
+    private static String variantUrl(Entity entity, String property, String url, int size) {
+        String variant = (String) entity.getProperty(property);
+        return variant != null ? variant : resizedUrl(url, size);
+    }
+
+    /**
+     * Returns the url of the image at a serving url, scaled so that its longest side is at most
+     * size pixels. Images smaller than that are not scaled up.
+     */
+    static String resizedUrl(String servingUrl, int size) {
+        return servingUrl + "=s" + size;
     }
 }
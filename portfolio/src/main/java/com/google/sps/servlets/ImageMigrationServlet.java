@@ -0,0 +1,127 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.servlets;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultList;
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.appengine.api.users.UserService;
+import com.google.appengine.api.users.UserServiceFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Backfills images saved before uploads were processed in the background. Those entities only
+ * have a url and a caption, so the gallery query, which lists ready images by timestamp, would
+ * never find them. Each task marks one batch of them ready, with the oldest possible timestamp so
+ * they are listed after every newer upload, and queues a task for the next batch. Entities that
+ * already have a status are left alone, so running it again is harmless.
+ *
+ * <p>An app admin starts the migration once after deploying, by visiting /migrate-images.
+ */
+@WebServlet("/migrate-images")
+public class ImageMigrationServlet extends HttpServlet {
+
+    private static final Logger logger =
+            Logger.getLogger(ImageMigrationServlet.class.getName());
+
+    private static final int BATCH_SIZE = 100;
+
+    // Legacy entities don't record when they were uploaded
+    static final long LEGACY_TIMESTAMP = 0L;
+
+    /** Queues the first batch of the migration. Only app admins may start it. */
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UserService userService = UserServiceFactory.getUserService();
+        if (!userService.isUserLoggedIn()) {
+            response.sendRedirect(userService.createLoginURL("/migrate-images"));
+            return;
+        }
+        if (!userService.isUserAdmin()) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        queue().add(TaskOptions.Builder.withUrl("/migrate-images"));
+        response.setContentType("text/plain;");
+        response.getWriter().println("Image migration started");
+    }
+
+    @Override
+    public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (request.getHeader(ImageProcessingServlet.QUEUE_HEADER) == null) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        FetchOptions options = FetchOptions.Builder.withLimit(BATCH_SIZE);
+        String cursor = request.getParameter("cursor");
+        if (cursor != null) {
+            try {
+                options.startCursor(Cursor.fromWebSafeString(cursor));
+            } catch (IllegalArgumentException e) {
+                // Retrying won't fix a bad cursor, so report success to drop the task
+                logger.log(Level.WARNING, "Invalid cursor in migration task", e);
+                return;
+            }
+        }
+
+        DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+        QueryResultList<Entity> results = datastore
+                .prepare(new Query(FileHandlerServlet.IMAGE_DATASTORE_KEY))
+                .asQueryResultList(options);
+
+        List<Entity> legacy = new ArrayList<>();
+        for (Entity entity : results) {
+            if (!entity.hasProperty(FileHandlerServlet.STATUS_PROPERTY)) {
+                entity.setProperty(
+                        FileHandlerServlet.STATUS_PROPERTY, FileHandlerServlet.STATUS_READY);
+                if (!entity.hasProperty("timestamp")) {
+                    entity.setProperty("timestamp", LEGACY_TIMESTAMP);
+                }
+                legacy.add(entity);
+            }
+        }
+        if (!legacy.isEmpty()) {
+            datastore.put(legacy);
+            FileHandlerServlet.invalidateGalleryCache();
+        }
+
+        // A short batch means there is nothing after it
+        if (results.size() == BATCH_SIZE) {
+            queue().add(TaskOptions.Builder.withUrl("/migrate-images")
+                    .param("cursor", results.getCursor().toWebSafeString()));
+        }
+    }
+
+    private static Queue queue() {
+        return QueueFactory.getQueue(ImageProcessingServlet.QUEUE_NAME);
+    }
+}
@@ -0,0 +1,227 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.servlets;
+
+import com.google.appengine.api.blobstore.BlobInfo;
+import com.google.appengine.api.blobstore.BlobInfoFactory;
+import com.google.appengine.api.blobstore.BlobKey;
+import com.google.appengine.api.blobstore.BlobstoreService;
+import com.google.appengine.api.blobstore.BlobstoreServiceFactory;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.images.ImagesService;
+import com.google.appengine.api.images.ImagesServiceFactory;
+import com.google.appengine.api.images.ServingUrlOptions;
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import java.io.IOException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Finishes an upload in the background, called by the image-processing task queue for each image
+ * recorded by {@link FileHandlerServlet}. Checks the blob is a non-empty image, then stores its
+ * serving url, resized variants and metadata on the entity and marks it ready. An upload with the
+ * same bytes as an existing image is dropped, blob and all, instead. Anything that fails makes
+ * the request fail, and the task queue retries it with backoff (see queue.xml).
+ */
+@WebServlet("/process-image")
+public class ImageProcessingServlet extends HttpServlet {
+
+    private static final Logger logger =
+            Logger.getLogger(ImageProcessingServlet.class.getName());
+
+    static final String QUEUE_NAME = "image-processing";
+    private static final String ACCEPTABLE_CONTENT_TYPE = "image";
+
+    // Keyed by the SHA-256 of an image's bytes, pointing at the Image entity that holds them
+    private static final String IMAGE_HASH_KIND = "ImageHash";
+
+    // App Engine strips this header from requests that don't come from a task queue
+    static final String QUEUE_HEADER = "X-AppEngine-QueueName";
+
+    /** Queues the image entity with the given key to be processed once transaction commits */
+    static void enqueue(Transaction transaction, Key imageKey) {
+        Queue queue = QueueFactory.getQueue(QUEUE_NAME);
+        queue.add(transaction, TaskOptions.Builder.withUrl("/process-image")
+                .param("id", Long.toString(imageKey.getId())));
+    }
+
+    @Override
+    public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (request.getHeader(QUEUE_HEADER) == null) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        long id;
+        try {
+            id = Long.parseLong(request.getParameter("id"));
+        } catch (NumberFormatException e) {
+            // Retrying won't fix a bad id, so report success to drop the task
+            logger.log(Level.WARNING, "Invalid image id in task", e);
+            return;
+        }
+
+        DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+        Key imageKey = KeyFactory.createKey(FileHandlerServlet.IMAGE_DATASTORE_KEY, id);
+        Entity imageEntity;
+        try {
+            imageEntity = datastore.get(imageKey);
+        } catch (EntityNotFoundException e) {
+            // Already rejected by an earlier attempt
+            return;
+        }
+        Object status = imageEntity.getProperty(FileHandlerServlet.STATUS_PROPERTY);
+        if (!FileHandlerServlet.STATUS_PENDING.equals(status)) {
+            // Tasks can run more than once; this one has already been done
+            return;
+        }
+
+        BlobstoreService blobstoreService = BlobstoreServiceFactory.getBlobstoreService();
+        BlobKey blobKey = (BlobKey) imageEntity.getProperty("blobKey");
+        BlobInfo blobInfo = new BlobInfoFactory().loadBlobInfo(blobKey);
+
+        if (blobInfo == null || blobInfo.getSize() == 0
+                || !blobInfo.getContentType().startsWith(ACCEPTABLE_CONTENT_TYPE)) {
+            // Delete blob and entity to prevent them from being orphaned
+            if (blobInfo != null) {
+                blobstoreService.delete(blobKey);
+            }
+            datastore.delete(imageKey);
+            return;
+        }
+
+        // Someone uploaded these exact bytes before: keep the existing image and drop this copy
+        String hash = sha256(blobstoreService, blobKey, blobInfo.getSize());
+        if (!claimHash(datastore, hash, imageKey).equals(imageKey)) {
+            blobstoreService.delete(blobKey);
+            datastore.delete(imageKey);
+            return;
+        }
+
+        String imageUrl = getUrlfromKey(blobKey).getPath();
+        imageEntity.setProperty("url", imageUrl);
+        imageEntity.setProperty(FileHandlerServlet.THUMBNAIL_URL_PROPERTY,
+                FileHandlerServlet.resizedUrl(imageUrl, FileHandlerServlet.THUMBNAIL_SIZE));
+        imageEntity.setProperty(FileHandlerServlet.MEDIUM_URL_PROPERTY,
+                FileHandlerServlet.resizedUrl(imageUrl, FileHandlerServlet.MEDIUM_SIZE));
+        imageEntity.setProperty(FileHandlerServlet.FULL_URL_PROPERTY,
+                FileHandlerServlet.resizedUrl(imageUrl, FileHandlerServlet.FULL_SIZE));
+        imageEntity.setProperty("contentType", blobInfo.getContentType());
+        imageEntity.setProperty("size", blobInfo.getSize());
+        imageEntity.setProperty("filename", blobInfo.getFilename());
+        imageEntity.setProperty("sha256", hash);
+        imageEntity.setProperty(
+                FileHandlerServlet.STATUS_PROPERTY, FileHandlerServlet.STATUS_READY);
+        datastore.put(imageEntity);
+        FileHandlerServlet.invalidateGalleryCache();
+    }
+
+    /**
+     * Returns the hex SHA-256 of a blob, reading it in the largest chunks blobstore allows so the
+     * whole image is never held in memory
+     */
+    private static String sha256(BlobstoreService blobstoreService, BlobKey blobKey, long size) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + BlobstoreService.MAX_BLOB_FETCH_SIZE, size) - 1;
+            byte[] chunk = blobstoreService.fetchData(blobKey, start, end);
+            if (chunk.length == 0) {
+                throw new IllegalStateException("Blob ended early at byte " + start);
+            }
+            digest.update(chunk);
+            start += chunk.length;
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Records that imageKey holds the image with the given hash, unless an existing image already
+     * does. Returns the key of the image that holds it. Runs in a transaction on an entity keyed by
+     * the hash, so two identical uploads processed at once can't both claim it.
+     */
+    private static Key claimHash(DatastoreService datastore, String hash, Key imageKey) {
+        Key hashKey = KeyFactory.createKey(IMAGE_HASH_KIND, hash);
+        Transaction transaction = datastore.beginTransaction();
+        try {
+            try {
+                Key original = (Key) datastore.get(transaction, hashKey).getProperty("image");
+                if (original.equals(imageKey) || exists(datastore, original)) {
+                    return original;
+                }
+                // The image that held the hash has been deleted since, so take over
+            } catch (EntityNotFoundException e) {
+                // First upload of this image
+            }
+
+            Entity claim = new Entity(hashKey);
+            claim.setProperty("image", imageKey);
+            datastore.put(transaction, claim);
+            transaction.commit();
+            return imageKey;
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        }
+    }
+
+    private static boolean exists(DatastoreService datastore, Key key) {
+        try {
+            datastore.get(key);
+            return true;
+        } catch (EntityNotFoundException e) {
+            return false;
+        }
+    }
+
+    /** 
+     * Returns a URL that points to the uploaded file key
+     * precondition: the blobKey exists (is non-null)
+     */
+    private URL getUrlfromKey(BlobKey blobKey) throws IOException {
+        ImagesService imagesService = ImagesServiceFactory.getImagesService();
+        ServingUrlOptions options = ServingUrlOptions.Builder.withBlobKey(blobKey);
+
+        return new URL(imagesService.getServingUrl(options));
+    }
+}
@@ -113,18 +113,42 @@ async function getBlobstoreUrl() {
     messageForm.action = url;
 }
 
-/** Print uploaded images to page */
-async function getBlobstoreImage() {
-    var response = await fetch("/file-handler");
-    var imageJson = await response.json();
+/**
+ * Print a page of uploaded images to page, newest first. Without a cursor this starts over
+ * from the first page; with one it adds the page after it below the images already shown.
+ */
+async function getBlobstoreImage(cursor) {
+    var url = "/file-handler";
+    if (cursor) {
+        url += "?cursor=" + encodeURIComponent(cursor);
+    }
+    var response = await fetch(url);
+    var page = await response.json();
 
     var imageContainer = document.getElementById("uploaded-images");
-    imageContainer.innerHTML = "";
-    imageJson.forEach(url => {
+    if (!cursor) {
+        imageContainer.innerHTML = "";
+    }
+    page.images.forEach(image => {
         var node = document.createElement("IMG");
-        node.setAttribute("src", url)
+        node.setAttribute("src", image.src);
+        node.setAttribute("srcset", image.srcset);
+        // previews are shown small, so let the browser pick a small variant
+        node.setAttribute("sizes", "(max-width: 600px) 100vw, 400px");
+        node.setAttribute("loading", "lazy");
+        if (image.caption) {
+            node.setAttribute("alt", image.caption);
+        }
         imageContainer.appendChild(node);
     });
+
+    var moreButton = document.getElementById("more-images");
+    if (page.nextCursor) {
+        moreButton.style.display = "";
+        moreButton.onclick = () => getBlobstoreImage(page.nextCursor);
+    } else {
+        moreButton.style.display = "none";
+    }
 }
 
 function loadBlogPage() {
@@ -0,0 +1,212 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.servlets;
+
+import com.google.appengine.api.blobstore.BlobKey;
+import com.google.appengine.api.blobstore.BlobstoreService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a blob as a stream, fetching it from Blobstore one chunk at a time as the reader gets to
+ * it. Only the chunk being read (and, when prefetching, the window of chunks after it) is held in
+ * memory, so even large uploads can be processed in bounded memory. Wrap it with {@code
+ * java.nio.channels.Channels.newChannel} where a {@code ReadableByteChannel} is needed.
+ *
+ * <p>Given an executor, the stream keeps a window of the next few chunks being fetched in parallel
+ * while the current one is read, and hands them out in order. Each fetch is one round trip to
+ * Blobstore, so a window of n chunks makes reading a large blob up to n times faster, at the cost
+ * of holding up to n more chunks in memory.
+ */
+public final class BlobInputStream extends InputStream {
+
+  private static final byte[] NO_BYTES = new byte[0];
+
+  private final BlobstoreService blobstoreService;
+  private final BlobKey blobKey;
+  private final long size;
+  private final int chunkSize;
+  private final ExecutorService prefetchExecutor;
+  private final int window;
+
+  private byte[] chunk = NO_BYTES;
+  private int position = 0;
+
+  // Index of the first byte that hasn't been asked for yet.
+  private long nextFetchStart = 0;
+
+  // The chunks after the current one that are being fetched in the background, in order.
+  private final Deque<Future<byte[]>> prefetched = new ArrayDeque<>();
+
+  private boolean closed = false;
+
+  /**
+   * Creates a stream over the blob that only fetches a chunk when the reader gets to it.
+   *
+   * @param size the size of the blob in bytes, as given by its {@code BlobInfo}
+   */
+  public BlobInputStream(BlobstoreService blobstoreService, BlobKey blobKey, long size) {
+    this(blobstoreService, blobKey, size, null, 0);
+  }
+
+  /**
+   * Creates a stream over the blob that keeps up to {@code window} chunks ahead of the reader being
+   * fetched at once on {@code prefetchExecutor}. The executor needs as many threads as the window
+   * to fetch them all in parallel, and is not shut down by the stream.
+   *
+   * @param size the size of the blob in bytes, as given by its {@code BlobInfo}
+   * @param prefetchExecutor where to fetch ahead, or null to only fetch when needed
+   * @param window the most chunks to fetch ahead at once
+   */
+  public BlobInputStream(
+      BlobstoreService blobstoreService,
+      BlobKey blobKey,
+      long size,
+      ExecutorService prefetchExecutor,
+      int window) {
+    if (window < 0) {
+      throw new IllegalArgumentException("window cannot be negative");
+    }
+    this.blobstoreService = blobstoreService;
+    this.blobKey = blobKey;
+    this.size = size;
+    this.chunkSize = BlobstoreService.MAX_BLOB_FETCH_SIZE;
+    this.prefetchExecutor = prefetchExecutor;
+    this.window = prefetchExecutor == null ? 0 : window;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!fill()) {
+      return -1;
+    }
+    return chunk[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (offset < 0 || length < 0 || length > buffer.length - offset) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (length == 0) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+
+    int count = Math.min(length, chunk.length - position);
+    System.arraycopy(chunk, position, buffer, offset, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    // Skipping within the current chunk is free; beyond it, read and throw away.
+    long skipped = 0;
+    while (skipped < n && fill()) {
+      int count = (int) Math.min(n - skipped, chunk.length - position);
+      position += count;
+      skipped += count;
+    }
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return chunk.length - position;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    chunk = NO_BYTES;
+    position = 0;
+    for (Future<byte[]> fetch : prefetched) {
+      fetch.cancel(true);
+    }
+    prefetched.clear();
+  }
+
+  /**
+   * Makes sure there is at least one unread byte in the current chunk, fetching the next chunk if
+   * needed. Returns false at the end of the blob.
+   */
+  private boolean fill() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    while (position == chunk.length) {
+      if (prefetched.isEmpty() && nextFetchStart >= size) {
+        return false;
+      }
+      chunk = nextChunk();
+      position = 0;
+      if (chunk.length == 0) {
+        // Blobs can't change, so this only happens if size was wrong.
+        throw new IOException("Blob ended before its expected size of " + size + " bytes");
+      }
+    }
+    return true;
+  }
+
+  private byte[] nextChunk() throws IOException {
+    if (window == 0) {
+      byte[] next = fetch(nextFetchStart);
+      nextFetchStart += chunkSize;
+      return next;
+    }
+
+    // Start the chunk we need along with the window, then top the window back up so that it keeps
+    // fetching while this chunk is read. The chunks are queued in order, so they are handed out in
+    // order whichever fetch finishes first.
+    prefetch();
+    Future<byte[]> next = prefetched.removeFirst();
+    prefetch();
+    return await(next);
+  }
+
+  private void prefetch() {
+    while (prefetched.size() < window && nextFetchStart < size) {
+      long start = nextFetchStart;
+      prefetched.addLast(prefetchExecutor.submit(() -> fetch(start)));
+      nextFetchStart += chunkSize;
+    }
+  }
+
+  private byte[] fetch(long start) {
+    // end index is inclusive, so we have to subtract 1 to get chunkSize bytes
+    long end = Math.min(start + chunkSize, size) - 1;
+    return blobstoreService.fetchData(blobKey, start, end);
+  }
+
+  private static byte[] await(Future<byte[]> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while fetching blob");
+    } catch (ExecutionException e) {
+      throw new IOException("Could not fetch blob", e.getCause());
+    }
+  }
+}
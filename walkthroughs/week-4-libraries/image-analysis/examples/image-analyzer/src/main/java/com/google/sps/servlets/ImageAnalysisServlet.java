@@ -14,6 +14,7 @@
 
 package com.google.servlets;
 
+import com.google.appengine.api.ThreadManager;
 import com.google.appengine.api.blobstore.BlobInfo;
 import com.google.appengine.api.blobstore.BlobInfoFactory;
 import com.google.appengine.api.blobstore.BlobKey;
@@ -30,14 +31,16 @@ import com.google.cloud.vision.v1.Feature;
 import com.google.cloud.vision.v1.Image;
 import com.google.cloud.vision.v1.ImageAnnotatorClient;
 import com.google.protobuf.ByteString;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -50,6 +53,9 @@ import javax.servlet.http.HttpServletResponse;
 @WebServlet("/image-analysis")
 public class ImageAnalysisServlet extends HttpServlet {
 
+  // How many chunks of an upload to fetch from Blobstore at once.
+  private static final int PREFETCH_WINDOW = 4;
+
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
 
@@ -71,7 +77,7 @@ public class ImageAnalysisServlet extends HttpServlet {
     String imageUrl = getUploadedFileUrl(blobKey);
 
     // Get the labels of the image that the user uploaded.
-    byte[] blobBytes = getBlobBytes(blobKey);
+    ByteString blobBytes = getBlobBytes(blobKey);
     List<EntityAnnotation> imageLabels = getImageLabels(blobBytes);
 
     // Output some HTML that shows the data the user entered.
@@ -118,39 +124,30 @@ public class ImageAnalysisServlet extends HttpServlet {
 
   /**
    * Blobstore stores files as binary data. This function retrieves the binary data stored at the
-   * BlobKey parameter.
+   * BlobKey parameter. The blob is streamed straight into the ByteString, so only one copy of it is
+   * ever held in memory, and the next few chunks are fetched in parallel while the current one is
+   * copied.
    */
-  private byte[] getBlobBytes(BlobKey blobKey) throws IOException {
+  private ByteString getBlobBytes(BlobKey blobKey) throws IOException {
     BlobstoreService blobstoreService = BlobstoreServiceFactory.getBlobstoreService();
-    ByteArrayOutputStream outputBytes = new ByteArrayOutputStream();
-
-    int fetchSize = BlobstoreService.MAX_BLOB_FETCH_SIZE;
-    long currentByteIndex = 0;
-    boolean continueReading = true;
-    while (continueReading) {
-      // end index is inclusive, so we have to subtract 1 to get fetchSize bytes
-      byte[] b =
-          blobstoreService.fetchData(blobKey, currentByteIndex, currentByteIndex + fetchSize - 1);
-      outputBytes.write(b);
-
-      // if we read fewer bytes than we requested, then we reached the end
-      if (b.length < fetchSize) {
-        continueReading = false;
-      }
-
-      currentByteIndex += fetchSize;
+    long size = new BlobInfoFactory().loadBlobInfo(blobKey).getSize();
+
+    ExecutorService prefetchExecutor =
+        Executors.newFixedThreadPool(PREFETCH_WINDOW, ThreadManager.currentRequestThreadFactory());
+    try (InputStream in =
+        new BlobInputStream(blobstoreService, blobKey, size, prefetchExecutor, PREFETCH_WINDOW)) {
+      return ByteString.readFrom(in, BlobstoreService.MAX_BLOB_FETCH_SIZE);
+    } finally {
+      prefetchExecutor.shutdownNow();
     }
-
-    return outputBytes.toByteArray();
   }
 
   /**
    * Uses the Google Cloud Vision API to generate a list of labels that apply to the image
    * represented by the binary data stored in imgBytes.
    */
-  private List<EntityAnnotation> getImageLabels(byte[] imgBytes) throws IOException {
-    ByteString byteString = ByteString.copyFrom(imgBytes);
-    Image image = Image.newBuilder().setContent(byteString).build();
+  private List<EntityAnnotation> getImageLabels(ByteString imgBytes) throws IOException {
+    Image image = Image.newBuilder().setContent(imgBytes).build();
 
     Feature feature = Feature.newBuilder().setType(Feature.Type.LABEL_DETECTION).build();
     AnnotateImageRequest request =
@@ -0,0 +1,176 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.servlets;
+
+import com.google.appengine.api.blobstore.BlobKey;
+import com.google.appengine.api.blobstore.BlobstoreService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class BlobInputStreamTest {
+  private static final int CHUNK_SIZE = BlobstoreService.MAX_BLOB_FETCH_SIZE;
+  private static final BlobKey BLOB_KEY = new BlobKey("blob");
+
+  // The start of every chunk fetched from the fake Blobstore, in the order they were fetched.
+  private final List<Long> fetches = new CopyOnWriteArrayList<>();
+
+  @Test
+  public void emptyBlobEndsRightAway() throws IOException {
+    InputStream in = new BlobInputStream(blobstore(0), BLOB_KEY, 0);
+
+    Assert.assertEquals(-1, in.read());
+    Assert.assertEquals(-1, in.read(new byte[16], 0, 16));
+    Assert.assertTrue(fetches.isEmpty());
+  }
+
+  @Test
+  public void readsBlobThatIsAWholeNumberOfChunks() throws IOException {
+    long size = 2L * CHUNK_SIZE;
+    InputStream in = new BlobInputStream(blobstore(size), BLOB_KEY, size);
+
+    assertReadsWholeBlob(in, size);
+    Assert.assertEquals(2, fetches.size());
+  }
+
+  @Test
+  public void readsBlobWithAShortLastChunk() throws IOException {
+    long size = CHUNK_SIZE + 123;
+    InputStream in = new BlobInputStream(blobstore(size), BLOB_KEY, size);
+
+    assertReadsWholeBlob(in, size);
+    Assert.assertEquals(2, fetches.size());
+  }
+
+  @Test
+  public void prefetchStaysWithinTheWindow() throws IOException {
+    long size = 6L * CHUNK_SIZE;
+    InputStream in = new BlobInputStream(blobstore(size), BLOB_KEY, size, new InlineExecutor(), 2);
+
+    in.read();
+    // The chunk being read and the two after it.
+    Assert.assertEquals(3, fetches.size());
+
+    in.skip(CHUNK_SIZE);
+    Assert.assertEquals(4, fetches.size());
+
+    in.skip(size);
+    Assert.assertEquals(6, fetches.size());
+    Assert.assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void prefetchHandsOutChunksInOrder() throws Exception {
+    long size = 5L * CHUNK_SIZE + 1;
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      InputStream in = new BlobInputStream(blobstore(size), BLOB_KEY, size, executor, 3);
+
+      assertReadsWholeBlob(in, size);
+      Assert.assertEquals(6, fetches.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Reads {@code in} to the end, checking every byte against {@link #byteAt}. */
+  private static void assertReadsWholeBlob(InputStream in, long size) throws IOException {
+    byte[] buffer = new byte[64 * 1024];
+    long position = 0;
+    int count;
+    while ((count = in.read(buffer, 0, buffer.length)) != -1) {
+      for (int i = 0; i < count; i++) {
+        if (buffer[i] != byteAt(position + i)) {
+          Assert.fail("Wrong byte at " + (position + i));
+        }
+      }
+      position += count;
+    }
+    Assert.assertEquals(size, position);
+    Assert.assertEquals(-1, in.read());
+  }
+
+  private static byte byteAt(long position) {
+    return (byte) (position * 31 + position / CHUNK_SIZE);
+  }
+
+  /**
+   * Returns a Blobstore whose only blob has {@code size} bytes given by {@link #byteAt}, and which
+   * records every fetch.
+   */
+  private BlobstoreService blobstore(long size) {
+    return (BlobstoreService) Proxy.newProxyInstance(
+        BlobstoreService.class.getClassLoader(),
+        new Class<?>[] {BlobstoreService.class},
+        (proxy, method, args) -> {
+          if (!method.getName().equals("fetchData")) {
+            throw new UnsupportedOperationException(method.getName());
+          }
+          long start = (Long) args[1];
+          // Like Blobstore, the end is inclusive and stops at the end of the blob.
+          long end = Math.min((Long) args[2], size - 1);
+          fetches.add(start);
+          byte[] data = new byte[(int) Math.max(end - start + 1, 0)];
+          for (int i = 0; i < data.length; i++) {
+            data[i] = byteAt(start + i);
+          }
+          return data;
+        });
+  }
+
+  /** Runs every task as soon as it is submitted, so fetches happen exactly when they are asked. */
+  private static final class InlineExecutor extends AbstractExecutorService {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+
+    @Override
+    public void shutdown() {}
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.sps.loadtest.OrgCalendarGenerator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares loading a whole organization's calendar from a JSON array of events, parsed by Gson's
+ * reflection, with loading it from {@link CalendarFormat}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalendarFormatBenchmark {
+  private static final long SEED = 42;
+
+  /** The number of people in the organization. */
+  @Param({"2000", "10000"})
+  public int people;
+
+  private final Gson gson = new Gson();
+
+  private String json;
+  private byte[] compact;
+
+  @Setup
+  public void setUp() throws IOException {
+    List<Event> events = new OrgCalendarGenerator(SEED, people).generate();
+
+    JsonArray array = new JsonArray();
+    Map<Long, Event> byId = new LinkedHashMap<>();
+    for (Event event : events) {
+      JsonObject object = gson.toJsonTree(new JsonEvent(event)).getAsJsonObject();
+      array.add(object);
+      byId.put((long) byId.size() + 1, event);
+    }
+    json = gson.toJson(array);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CalendarFormat.write(byId, out);
+    compact = out.toByteArray();
+  }
+
+  @Benchmark
+  public List<Event> readJson() {
+    JsonEvent[] parsed = gson.fromJson(new StringReader(json), JsonEvent[].class);
+    List<Event> events = new ArrayList<>(parsed.length);
+    for (JsonEvent event : parsed) {
+      events.add(new Event(event.title, event.when, event.attendees));
+    }
+    return events;
+  }
+
+  @Benchmark
+  public Map<Long, Event> readCompact() throws IOException {
+    return CalendarFormat.read(new ByteArrayInputStream(compact));
+  }
+
+  /** An event as the JSON endpoints see it, with attendee names. */
+  private static final class JsonEvent {
+    private String title;
+    private TimeRange when;
+    private List<String> attendees;
+
+    JsonEvent(Event event) {
+      this.title = event.getTitle();
+      this.when = event.getWhen();
+      this.attendees = new ArrayList<>(event.getAttendees());
+    }
+  }
+}
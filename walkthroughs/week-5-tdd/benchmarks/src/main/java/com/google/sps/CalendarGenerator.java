@@ -0,0 +1,96 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random calendars for the benchmarks. The same seed always gives the same calendar, so
+ * runs before and after a change measure exactly the same workload.
+ */
+public final class CalendarGenerator {
+  private static final int[] DURATIONS = {15, 30, 30, 45, 60, 60, 90, 120};
+
+  private final Random random;
+  private final List<String> people = new ArrayList<>();
+
+  /**
+   * Creates a generator whose events and requests are drawn from {@code peopleCount} people.
+   */
+  public CalendarGenerator(long seed, int peopleCount) {
+    this.random = new Random(seed);
+    for (int i = 0; i < peopleCount; i++) {
+      people.add("Person " + i);
+    }
+  }
+
+  /**
+   * Generates {@code count} events with {@code attendeesPerEvent} attendees each.
+   *
+   * @param overlapDensity The chance, from 0 to 1, that an event starts during an earlier event
+   *     rather than at a random time of the day. Higher values give more overlapping events.
+   */
+  public List<Event> events(int count, int attendeesPerEvent, double overlapDensity) {
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      int duration = DURATIONS[random.nextInt(DURATIONS.length)];
+      int latestStart = TimeRange.WHOLE_DAY.duration() - duration;
+
+      int start;
+      if (!events.isEmpty() && random.nextDouble() < overlapDensity) {
+        TimeRange earlier = events.get(random.nextInt(events.size())).getWhen();
+        start = Math.min(earlier.start() + random.nextInt(earlier.duration()), latestStart);
+      } else {
+        start = random.nextInt(latestStart + 1);
+      }
+
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          pickPeople(attendeesPerEvent)));
+    }
+    return events;
+  }
+
+  /**
+   * Generates a request for {@code attendees} required and {@code optionalAttendees} optional
+   * people, none of whom appear twice.
+   */
+  public MeetingRequest request(int attendees, int optionalAttendees, int duration) {
+    List<String> picked = pickPeople(attendees + optionalAttendees);
+    MeetingRequest request = new MeetingRequest(picked.subList(0, attendees), duration);
+    for (String optional : picked.subList(attendees, picked.size())) {
+      request.addOptionalAttendee(optional);
+    }
+    return request;
+  }
+
+  private List<String> pickPeople(int count) {
+    if (count > people.size()) {
+      throw new IllegalArgumentException(
+          "Can't pick " + count + " of " + people.size() + " people");
+    }
+
+    // A partial Fisher-Yates shuffle picks distinct people without touching the whole list.
+    List<String> picked = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      int j = i + random.nextInt(people.size() - i);
+      Collections.swap(people, i, j);
+      picked.add(people.get(i));
+    }
+    return picked;
+  }
+}
@@ -0,0 +1,113 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many meeting queries per millisecond {@link FindMeetingQuery} can answer for
+ * calendars of different shapes. Run with {@code -prof gc} to also see the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FindMeetingQueryBenchmark {
+  private static final long SEED = 42;
+
+  // Roughly how many events each person attends, which decides how many people there are.
+  private static final int EVENTS_PER_PERSON = 8;
+
+  // Requests are cycled through so that the JIT can't specialize on a single one.
+  private static final int REQUEST_COUNT = 256;
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  @Param({"100", "10000"})
+  public int eventsPerDay;
+
+  @Param({"3"})
+  public int attendeesPerEvent;
+
+  @Param({"3", "30"})
+  public int requestSize;
+
+  @Param({"0", "3"})
+  public int optionalAttendees;
+
+  @Param({"0.2", "0.8"})
+  public double overlapDensity;
+
+  private List<Event> events;
+  private EventIndex index;
+  private MeetingRequest[] requests;
+  private FindMeetingQuery findMeetingQuery;
+  private int next = 0;
+
+  @Setup
+  public void setUp() {
+    int people = Math.max(requestSize + optionalAttendees,
+        eventsPerDay * attendeesPerEvent / EVENTS_PER_PERSON);
+    CalendarGenerator generator = new CalendarGenerator(SEED, people);
+
+    events = generator.events(eventsPerDay, attendeesPerEvent, overlapDensity);
+    index = new EventIndex(events);
+    requests = new MeetingRequest[REQUEST_COUNT];
+    for (int i = 0; i < REQUEST_COUNT; i++) {
+      requests[i] = generator.request(requestSize, optionalAttendees, DURATION_30_MINUTES);
+    }
+    findMeetingQuery = new FindMeetingQuery();
+  }
+
+  /** A query that starts from the plain list of events, like a one-off caller would. */
+  @Benchmark
+  public Collection<TimeRange> queryEvents() {
+    return findMeetingQuery.query(events, nextRequest());
+  }
+
+  /** A query against an index that has already been built, like the servlets do. */
+  @Benchmark
+  public Collection<TimeRange> queryIndex() {
+    return findMeetingQuery.query(index, nextRequest());
+  }
+
+  /** Only the free-time search for the required attendees. */
+  @Benchmark
+  public Collection<TimeRange> findFreeTimes() {
+    MeetingRequest request = nextRequest();
+    return findMeetingQuery.findFreeTimes(index, request.getAttendees(), request.getDuration());
+  }
+
+  private MeetingRequest nextRequest() {
+    MeetingRequest request = requests[next];
+    next = (next + 1) % REQUEST_COUNT;
+    return request;
+  }
+}
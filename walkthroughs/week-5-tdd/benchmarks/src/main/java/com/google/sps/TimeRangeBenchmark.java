@@ -0,0 +1,99 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the {@link TimeRange} operations the scheduler calls in its inner loops. Each invocation
+ * goes over a fixed set of random ranges so that branch prediction can't learn a single answer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimeRangeBenchmark {
+  private static final long SEED = 42;
+  private static final int RANGE_COUNT = 1024;
+
+  private final TimeRange[] ranges = new TimeRange[RANGE_COUNT];
+  private final TimeRange[] others = new TimeRange[RANGE_COUNT];
+  private final int[] starts = new int[RANGE_COUNT];
+  private final int[] ends = new int[RANGE_COUNT];
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(SEED);
+    for (int i = 0; i < RANGE_COUNT; i++) {
+      ranges[i] = randomRange(random);
+      others[i] = randomRange(random);
+      starts[i] = ranges[i].start();
+      ends[i] = ranges[i].end();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RANGE_COUNT)
+  public void overlaps(Blackhole blackhole) {
+    for (int i = 0; i < RANGE_COUNT; i++) {
+      blackhole.consume(ranges[i].overlaps(others[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RANGE_COUNT)
+  public void contains(Blackhole blackhole) {
+    for (int i = 0; i < RANGE_COUNT; i++) {
+      blackhole.consume(ranges[i].contains(others[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RANGE_COUNT)
+  public void fromStartEnd(Blackhole blackhole) {
+    for (int i = 0; i < RANGE_COUNT; i++) {
+      blackhole.consume(TimeRange.fromStartEnd(starts[i], ends[i], false));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RANGE_COUNT)
+  public void orderByStart(Blackhole blackhole) {
+    for (int i = 0; i < RANGE_COUNT; i++) {
+      blackhole.consume(TimeRange.ORDER_BY_START.compare(ranges[i], others[i]));
+    }
+  }
+
+  private static TimeRange randomRange(Random random) {
+    int duration = 15 + random.nextInt(120);
+    int start = random.nextInt(TimeRange.WHOLE_DAY.duration() - duration);
+    return TimeRange.fromStartDuration(start, duration);
+  }
+}
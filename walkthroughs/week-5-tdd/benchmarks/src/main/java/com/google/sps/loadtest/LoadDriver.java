@@ -0,0 +1,218 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.sps.Event;
+import com.google.sps.MeetingRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads a generated organization calendar into a running scheduler and then sends meeting requests
+ * to its /query endpoint at a fixed rate, reporting latency percentiles and throughput at the end.
+ *
+ * <p>Start the dev server in ../project with {@code mvn package appengine:run}, then run for
+ * example:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.google.sps.loadtest.LoadDriver \
+ *     --url=http://localhost:8080 --people=2000 --rate=200 --seconds=30
+ * </pre>
+ *
+ * <p>Requests are sent on a fixed schedule whether or not earlier ones have finished, and each
+ * latency is measured from when the request was due to be sent. A slow server therefore shows up
+ * in the percentiles instead of just lowering the rate.
+ */
+public final class LoadDriver {
+  private static final Gson gson = new Gson();
+
+  private LoadDriver() {
+    // Disallow instances.
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = parseOptions(args);
+    String url = options.getOrDefault("url", "http://localhost:8080");
+    long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+    int people = Integer.parseInt(options.getOrDefault("people", "1000"));
+    int rate = Integer.parseInt(options.getOrDefault("rate", "100"));
+    int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+    int attendees = Integer.parseInt(options.getOrDefault("attendees", "5"));
+    int optionalAttendees = Integer.parseInt(options.getOrDefault("optional", "2"));
+    int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+    int threads = Integer.parseInt(options.getOrDefault("threads", "32"));
+    boolean load = Boolean.parseBoolean(options.getOrDefault("load", "true"));
+
+    OrgCalendarGenerator generator = new OrgCalendarGenerator(seed, people);
+    List<Event> events = generator.generate();
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      if (load) {
+        System.out.printf("Loading %d events for %d people...%n", events.size(), people);
+        loadEvents(executor, url, events);
+      }
+
+      int total = rate * seconds;
+      List<String> requests = new ArrayList<>();
+      for (int i = 0; i < total; i++) {
+        requests.add(gson.toJson(generator.request(attendees, optionalAttendees, duration)));
+      }
+
+      System.out.printf("Sending %d requests/s for %d s...%n", rate, seconds);
+      run(executor, url + "/query", requests, rate);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void loadEvents(ExecutorService executor, String url, List<Event> events)
+      throws Exception {
+    List<Future<Integer>> results = new ArrayList<>();
+    for (Event event : events) {
+      String json = gson.toJson(toJson(event));
+      results.add(executor.submit(() -> post(url + "/add-event", json)));
+    }
+    for (Future<Integer> result : results) {
+      int status = result.get();
+      if (status != HttpURLConnection.HTTP_OK) {
+        throw new IOException("Loading an event failed with status " + status);
+      }
+    }
+  }
+
+  private static void run(ExecutorService executor, String url, List<String> requests, int rate)
+      throws Exception {
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+    long[] latencies = new long[requests.size()];
+    AtomicInteger errors = new AtomicInteger();
+    List<Future<?>> results = new ArrayList<>();
+
+    long begin = System.nanoTime();
+    for (int i = 0; i < requests.size(); i++) {
+      long due = begin + i * intervalNanos;
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        TimeUnit.NANOSECONDS.sleep(wait);
+      }
+
+      int request = i;
+      results.add(executor.submit(() -> {
+        try {
+          if (post(url, requests.get(request)) != HttpURLConnection.HTTP_OK) {
+            errors.incrementAndGet();
+          }
+        } catch (IOException e) {
+          errors.incrementAndGet();
+        }
+        latencies[request] = System.nanoTime() - due;
+      }));
+    }
+    for (Future<?> result : results) {
+      result.get();
+    }
+    long elapsed = System.nanoTime() - begin;
+
+    Arrays.sort(latencies);
+    System.out.printf("Requests:   %d (%d errors)%n", latencies.length, errors.get());
+    System.out.printf("Throughput: %.1f requests/s%n",
+        latencies.length / (elapsed / (double) TimeUnit.SECONDS.toNanos(1)));
+    System.out.printf("p50:        %.2f ms%n", percentile(latencies, 0.50));
+    System.out.printf("p99:        %.2f ms%n", percentile(latencies, 0.99));
+    System.out.printf("max:        %.2f ms%n", percentile(latencies, 1.0));
+  }
+
+  /** Returns the given percentile of sorted latencies in nanoseconds, in milliseconds. */
+  private static double percentile(long[] sortedLatencies, double percentile) {
+    if (sortedLatencies.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+    return sortedLatencies[Math.max(index, 0)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /** Posts {@code body} as JSON, reads the whole response and returns the status code. */
+  private static int post(String url, String body) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setRequestProperty("Content-Type", "application/json");
+    connection.setDoOutput(true);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    int status = connection.getResponseCode();
+    InputStream in = status < HttpURLConnection.HTTP_BAD_REQUEST
+        ? connection.getInputStream()
+        : connection.getErrorStream();
+    if (in != null) {
+      try (InputStream response = in) {
+        byte[] buffer = new byte[8192];
+        while (response.read(buffer) != -1) {
+          // Drain the response so that the connection can be reused.
+        }
+      }
+    }
+    return status;
+  }
+
+  /** Converts an event to the JSON expected by /add-event. */
+  private static JsonObject toJson(Event event) {
+    JsonObject when = new JsonObject();
+    when.addProperty("start", event.getWhen().start());
+    when.addProperty("duration", event.getWhen().duration());
+
+    JsonArray attendees = new JsonArray();
+    for (String attendee : event.getAttendees()) {
+      attendees.add(attendee);
+    }
+
+    JsonObject json = new JsonObject();
+    json.addProperty("title", event.getTitle());
+    json.add("when", when);
+    json.add("attendees", attendees);
+    return json;
+  }
+
+  /** Parses arguments of the form {@code --name=value}. */
+  private static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("=")) {
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      }
+      int equals = arg.indexOf('=');
+      options.put(arg.substring(2, equals), arg.substring(equals + 1));
+    }
+    return options;
+  }
+}
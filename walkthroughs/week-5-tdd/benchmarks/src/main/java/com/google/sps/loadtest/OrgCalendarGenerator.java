@@ -0,0 +1,175 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.loadtest;
+
+import com.google.sps.Event;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the calendar of a made-up organization that looks like a real one: people are split
+ * into teams with a daily stand-up, most people take lunch, some are out of office, and the rest of
+ * the day is filled with meetings whose sizes follow a power law (lots of 1:1s and small meetings,
+ * a few very large ones). The same seed and size always give the same calendar.
+ */
+public final class OrgCalendarGenerator {
+  private static final int TEAM_SIZE = 8;
+  private static final int STANDUP_DURATION = 15;
+
+  private static final double LUNCH_CHANCE = 0.8;
+  private static final double OUT_OF_OFFICE_CHANCE = 0.05;
+
+  // Meetings each person is invited to on average, besides stand-up and lunch.
+  private static final double MEETINGS_PER_PERSON = 4;
+
+  // Meeting sizes follow a Pareto distribution with this exponent, starting at 2 people.
+  private static final double MEETING_SIZE_EXPONENT = 2.2;
+  private static final int MAX_MEETING_SIZE = 200;
+
+  private static final int[] MEETING_DURATIONS = {15, 30, 30, 30, 45, 60, 60, 90};
+
+  private static final int WORKDAY_START = TimeRange.getTimeInMinutes(8, 0);
+  private static final int WORKDAY_END = TimeRange.getTimeInMinutes(18, 0);
+
+  private final Random random;
+  private final List<String> people = new ArrayList<>();
+
+  /**
+   * Creates a generator for an organization of {@code peopleCount} people.
+   */
+  public OrgCalendarGenerator(long seed, int peopleCount) {
+    this.random = new Random(seed);
+    for (int i = 0; i < peopleCount; i++) {
+      people.add("Person " + i);
+    }
+  }
+
+  /**
+   * Returns the names of everyone in the organization.
+   */
+  public List<String> getPeople() {
+    return Collections.unmodifiableList(people);
+  }
+
+  /**
+   * Generates one day of events for the whole organization.
+   */
+  public List<Event> generate() {
+    List<Event> events = new ArrayList<>();
+    addStandups(events);
+    addLunches(events);
+    addOutOfOffice(events);
+    addMeetings(events);
+    return events;
+  }
+
+  /**
+   * Generates a request for {@code attendees} random people, with {@code optionalAttendees} more
+   * as optional.
+   */
+  public MeetingRequest request(int attendees, int optionalAttendees, int duration) {
+    List<String> picked = pickPeople(attendees + optionalAttendees);
+    MeetingRequest request = new MeetingRequest(picked.subList(0, attendees), duration);
+    for (String optional : picked.subList(attendees, picked.size())) {
+      request.addOptionalAttendee(optional);
+    }
+    return request;
+  }
+
+  /** Every team meets at the same time each day, at some point in the morning. */
+  private void addStandups(List<Event> events) {
+    for (int first = 0; first < people.size(); first += TEAM_SIZE) {
+      List<String> team = people.subList(first, Math.min(first + TEAM_SIZE, people.size()));
+      int start = WORKDAY_START + 15 * random.nextInt(8);
+      events.add(new Event("Team stand-up", TimeRange.fromStartDuration(start, STANDUP_DURATION),
+          new ArrayList<>(team)));
+    }
+  }
+
+  private void addLunches(List<Event> events) {
+    for (String person : people) {
+      if (random.nextDouble() < LUNCH_CHANCE) {
+        int start = TimeRange.getTimeInMinutes(11, 30) + 15 * random.nextInt(7);
+        int duration = 30 + 15 * random.nextInt(3);
+        events.add(new Event("Lunch", TimeRange.fromStartDuration(start, duration),
+            Arrays.asList(person)));
+      }
+    }
+  }
+
+  /** Out of office is either the whole day or one half of it. */
+  private void addOutOfOffice(List<Event> events) {
+    int noon = TimeRange.getTimeInMinutes(12, 0);
+    for (String person : people) {
+      if (random.nextDouble() < OUT_OF_OFFICE_CHANCE) {
+        TimeRange when;
+        switch (random.nextInt(3)) {
+          case 0:
+            when = TimeRange.WHOLE_DAY;
+            break;
+          case 1:
+            when = TimeRange.fromStartEnd(TimeRange.START_OF_DAY, noon, false);
+            break;
+          default:
+            when = TimeRange.fromStartEnd(noon, TimeRange.END_OF_DAY, true);
+            break;
+        }
+        events.add(new Event("OOO", when, Arrays.asList(person)));
+      }
+    }
+  }
+
+  private void addMeetings(List<Event> events) {
+    long invitations = Math.round(people.size() * MEETINGS_PER_PERSON);
+    int meeting = 0;
+    while (invitations > 0) {
+      int size = Math.min(meetingSize(), people.size());
+      int duration = MEETING_DURATIONS[random.nextInt(MEETING_DURATIONS.length)];
+      int slots = (WORKDAY_END - WORKDAY_START - duration) / 15;
+      int start = WORKDAY_START + 15 * random.nextInt(slots + 1);
+
+      String title = size == 2 ? "1-on-1" : "Meeting " + meeting;
+      events.add(new Event(title, TimeRange.fromStartDuration(start, duration), pickPeople(size)));
+      invitations -= size;
+      meeting++;
+    }
+  }
+
+  private int meetingSize() {
+    double size = 2 * Math.pow(1 - random.nextDouble(), -1 / (MEETING_SIZE_EXPONENT - 1));
+    return (int) Math.min(size, MAX_MEETING_SIZE);
+  }
+
+  private List<String> pickPeople(int count) {
+    if (count > people.size()) {
+      throw new IllegalArgumentException(
+          "Can't pick " + count + " of " + people.size() + " people");
+    }
+
+    // A partial Fisher-Yates shuffle picks distinct people without touching the whole list.
+    List<String> picked = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      int j = i + random.nextInt(people.size() - i);
+      Collections.swap(people, i, j);
+      picked.add(people.get(i));
+    }
+    return picked;
+  }
+}
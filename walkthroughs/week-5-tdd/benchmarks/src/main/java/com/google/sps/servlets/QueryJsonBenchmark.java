@@ -0,0 +1,133 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares reading batch requests and writing their answers through Gson's reflection with the
+ * hand-written streaming {@link QueryJson} used by the servlets. This lives in the servlets'
+ * package because {@code QueryJson} is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryJsonBenchmark {
+  /** The number of requests in the batch. */
+  @Param({"1", "100", "1000"})
+  public int requests;
+
+  /** The number of required attendees in each request. */
+  @Param({"10"})
+  public int attendees;
+
+  /** The number of time ranges in each answer. */
+  @Param({"10"})
+  public int ranges;
+
+  private final Gson gson = new Gson();
+  private final Writer sink = new DiscardingWriter();
+
+  private String requestsJson;
+  private List<Collection<TimeRange>> answers;
+
+  @Setup
+  public void setUp() {
+    List<MeetingRequest> batch = new ArrayList<>();
+    answers = new ArrayList<>();
+    for (int i = 0; i < requests; i++) {
+      List<String> names = new ArrayList<>();
+      for (int j = 0; j < attendees; j++) {
+        names.add("Person " + (i * attendees + j));
+      }
+      MeetingRequest request = new MeetingRequest(names, 30);
+      request.addOptionalAttendee("Optional " + i);
+      batch.add(request);
+
+      List<TimeRange> answer = new ArrayList<>();
+      for (int j = 0; j < ranges; j++) {
+        answer.add(TimeRange.fromStartDuration(j * 60, 30));
+      }
+      answers.add(answer);
+    }
+    requestsJson = gson.toJson(batch);
+  }
+
+  @Benchmark
+  public MeetingRequest[] readReflective() {
+    return gson.fromJson(new StringReader(requestsJson), MeetingRequest[].class);
+  }
+
+  @Benchmark
+  public List<MeetingRequest> readStreaming() throws IOException {
+    return QueryJson.readRequests(new JsonReader(new StringReader(requestsJson)));
+  }
+
+  @Benchmark
+  public void writeReflective() throws IOException {
+    // What the servlets used to do: build the whole response as a string, then print it.
+    sink.write(gson.toJson(answers));
+  }
+
+  @Benchmark
+  public void writeStreaming() throws IOException {
+    JsonWriter writer = new JsonWriter(sink);
+    QueryJson.writeAnswers(writer, answers);
+    writer.flush();
+  }
+
+  /** A writer that throws away everything, so that only producing the JSON is measured. */
+  private static final class DiscardingWriter extends Writer {
+    @Override
+    public void write(char[] buffer, int offset, int length) {}
+
+    @Override
+    public void write(String string) {}
+
+    @Override
+    public void write(String string, int offset, int length) {}
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,140 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps attendee names to small, dense integer ids so that events and requests can hold their
+ * attendees as sorted {@code int[]} instead of sets of strings. Ids start at 0 and are handed out
+ * in the order names are first seen. A name keeps its id for as long as the app runs.
+ *
+ * <p>The dictionary is safe to use from many threads. Looking up a name that already has an id
+ * never blocks.
+ */
+public final class AttendeeDictionary {
+  private static final AttendeeDictionary INSTANCE = new AttendeeDictionary();
+
+  /** The id returned by {@link #lookup(String)} for names that have no id yet. */
+  public static final int UNKNOWN = -1;
+
+  private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+  // Indexed by id. Replaced by a bigger copy when full, while holding the lock on this dictionary.
+  private volatile String[] names = new String[64];
+  private int size = 0;
+
+  private AttendeeDictionary() {}
+
+  /**
+   * Returns the dictionary shared by all events and requests.
+   */
+  public static AttendeeDictionary getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the id of {@code name}, giving it a new id if it does not have one yet.
+   */
+  public int idOf(String name) {
+    Integer id = ids.get(name);
+    return id != null ? id : addName(name);
+  }
+
+  /**
+   * Returns the id of {@code name}, or {@link #UNKNOWN} if it does not have one. Unlike {@link
+   * #idOf(String)}, this never adds the name.
+   */
+  public int lookup(String name) {
+    Integer id = ids.get(name);
+    return id != null ? id : UNKNOWN;
+  }
+
+  /**
+   * Returns the sorted, duplicate-free ids of {@code names}, giving new ids to names that need one.
+   */
+  public int[] idsOf(Collection<String> names) {
+    int[] result = new int[names.size()];
+    int count = 0;
+    for (String name : names) {
+      result[count++] = idOf(name);
+    }
+    return sortedUnique(result, count);
+  }
+
+  /**
+   * Returns the sorted, duplicate-free ids of the {@code names} that already have one. Names
+   * without an id are skipped since no event can mention them.
+   */
+  public int[] lookupAll(Collection<String> names) {
+    int[] result = new int[names.size()];
+    int count = 0;
+    for (String name : names) {
+      int id = lookup(name);
+      if (id != UNKNOWN) {
+        result[count++] = id;
+      }
+    }
+    return sortedUnique(result, count);
+  }
+
+  /**
+   * Returns the name with the given id.
+   */
+  public String nameOf(int id) {
+    return names[id];
+  }
+
+  /**
+   * Returns one more than the largest id handed out so far.
+   */
+  public int size() {
+    return ids.size();
+  }
+
+  private synchronized int addName(String name) {
+    // Another thread may have added the name while we were waiting for the lock.
+    Integer existing = ids.get(name);
+    if (existing != null) {
+      return existing;
+    }
+
+    int id = size++;
+    String[] current = names;
+    if (id == current.length) {
+      current = Arrays.copyOf(current, current.length * 2);
+    }
+    current[id] = name;
+    names = current;
+
+    // Publish the id last so that anyone who can see it can also see the name.
+    ids.put(name, id);
+    return id;
+  }
+
+  private static int[] sortedUnique(int[] ids, int count) {
+    Arrays.sort(ids, 0, count);
+    int unique = 0;
+    for (int i = 0; i < count; i++) {
+      if (unique == 0 || ids[unique - 1] != ids[i]) {
+        ids[unique++] = ids[i];
+      }
+    }
+    return unique == ids.length ? ids : Arrays.copyOf(ids, unique);
+  }
+}
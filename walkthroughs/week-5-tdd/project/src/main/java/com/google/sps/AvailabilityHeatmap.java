@@ -0,0 +1,95 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * Counts how many people in a group are free during each bucket of the day, for example each
+ * half hour. Someone is free during a bucket if none of their events overlap it. Unlike {@link
+ * FindMeetingQuery}, which only finds the times that suit everyone, this shows how close every
+ * other time comes.
+ *
+ * <p>The counts are worked out in a single sweep: each stretch of time someone is busy adds one at
+ * its first bucket and removes one after its last bucket, and a running sum then gives the number
+ * of busy people per bucket. That takes O(events + buckets) instead of checking every bucket
+ * against every event.
+ */
+public final class AvailabilityHeatmap {
+  private AvailabilityHeatmap() {
+    // Disallow instances.
+  }
+
+  /**
+   * Returns, for each bucket of {@code bucketMinutes} minutes from the start of the day, how many
+   * of {@code attendees} are free. The last bucket is shorter if the day does not divide evenly.
+   *
+   * @param index The events to take into account. Must be non-null.
+   * @param attendees The people to count. Duplicates are counted once.
+   * @param bucketMinutes The length of each bucket. Must be between 1 and the length of a day.
+   */
+  public static int[] freeCounts(EventIndex index, Collection<String> attendees,
+      int bucketMinutes) {
+    int dayLength = TimeRange.WHOLE_DAY.duration();
+    if (bucketMinutes <= 0 || bucketMinutes > dayLength) {
+      throw new IllegalArgumentException("bucketMinutes must be between 1 and " + dayLength);
+    }
+
+    int bucketCount = (dayLength + bucketMinutes - 1) / bucketMinutes;
+
+    // changes[b] is how many more people are busy in bucket b than in bucket b - 1.
+    int[] changes = new int[bucketCount + 1];
+    long[] busy = new long[0];
+    int[] attendee = new int[1];
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    Collection<String> unique = new HashSet<>(attendees);
+    for (String name : unique) {
+      attendee[0] = dictionary.lookup(name);
+      if (attendee[0] == AttendeeDictionary.UNKNOWN) {
+        // Nobody without an id can have events, so they are free all day.
+        continue;
+      }
+
+      int count = index.countBusyTimesFor(attendee);
+      if (busy.length < count) {
+        busy = new long[Math.max(count, busy.length * 2)];
+      }
+      // One person's events are already sorted by start, so merging is all that's needed.
+      count = Intervals.merge(busy, index.busyTimesFor(attendee, busy));
+
+      // Buckets already marked for this person are not marked again, even if several of their
+      // events fall into the same bucket.
+      int marked = 0;
+      for (int i = 0; i < count; i++) {
+        int first = Math.max(Math.max(Intervals.start(busy[i]), 0) / bucketMinutes, marked);
+        int last = Math.min((Intervals.end(busy[i]) - 1) / bucketMinutes, bucketCount - 1);
+        if (first <= last) {
+          changes[first]++;
+          changes[last + 1]--;
+          marked = last + 1;
+        }
+      }
+    }
+
+    int[] free = new int[bucketCount];
+    int busyPeople = 0;
+    for (int bucket = 0; bucket < bucketCount; bucket++) {
+      busyPeople += changes[bucket];
+      free[bucket] = unique.size() - busyPeople;
+    }
+    return free;
+  }
+}
@@ -0,0 +1,72 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of placing a batch of meetings with {@link BatchScheduler}.
+ */
+public final class BatchSchedule {
+  private final List<TimeRange> times;
+  private final int placed;
+  private final boolean exhaustive;
+  private final long steps;
+
+  BatchSchedule(List<TimeRange> times, int placed, boolean exhaustive, long steps) {
+    this.times = Collections.unmodifiableList(times);
+    this.placed = placed;
+    this.exhaustive = exhaustive;
+    this.steps = steps;
+  }
+
+  /**
+   * Returns the time of each meeting, in the order the requests were given, or null for meetings
+   * that could not be placed.
+   */
+  public List<TimeRange> getTimes() {
+    return times;
+  }
+
+  /**
+   * Returns how many meetings were placed.
+   */
+  public int getPlaced() {
+    return placed;
+  }
+
+  /**
+   * Checks if every meeting was placed.
+   */
+  public boolean isComplete() {
+    return placed == times.size();
+  }
+
+  /**
+   * Checks if the search finished within its time budget. If it did, no schedule places more
+   * meetings than this one.
+   */
+  public boolean isExhaustive() {
+    return exhaustive;
+  }
+
+  /**
+   * Returns the number of steps the search took.
+   */
+  public long getSteps() {
+    return steps;
+  }
+}
@@ -0,0 +1,299 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Places a whole batch of meetings at once so that none of them clash with each other or with the
+ * attendees' existing events. Each meeting can only go where its required attendees are free, as
+ * found by {@link FindMeetingQuery}, at one of a set of start times a fixed number of minutes
+ * apart.
+ *
+ * <p>The search tries the meetings with the fewest possible start times first and backtracks when
+ * a meeting no longer fits. If not everything can be placed, it looks for the schedule that places
+ * as many meetings as possible, skipping branches that cannot beat the best schedule found so far.
+ * The search stops when its time budget runs out and returns the best schedule found by then.
+ *
+ * <p>Optional attendees are not taken into account.
+ */
+public final class BatchScheduler {
+  /**
+   * Told whenever the search finds a schedule that places more meetings than before.
+   */
+  public interface ProgressListener {
+    /**
+     * Called with the number of meetings placed by the new best schedule, the number of meetings in
+     * the batch and the number of search steps taken so far.
+     */
+    void onProgress(int placed, int total, long steps);
+  }
+
+  private static final ProgressListener NO_LISTENER = (placed, total, steps) -> {};
+
+  /** The most meetings one batch can hold. The search recurses once per meeting. */
+  public static final int MAX_BATCH_SIZE = 200;
+
+  private static final int DEFAULT_STEP_MINUTES = 15;
+
+  // How many search steps are taken between looking at the clock.
+  private static final int STEPS_PER_CLOCK_CHECK = 1024;
+
+  private final FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+  private final int stepMinutes;
+
+  /**
+   * Creates a scheduler that tries start times every 15 minutes.
+   */
+  public BatchScheduler() {
+    this(DEFAULT_STEP_MINUTES);
+  }
+
+  /**
+   * Creates a scheduler that tries start times every {@code stepMinutes} minutes.
+   */
+  public BatchScheduler(int stepMinutes) {
+    if (stepMinutes <= 0) {
+      throw new IllegalArgumentException("stepMinutes must be positive");
+    }
+    this.stepMinutes = stepMinutes;
+  }
+
+  /**
+   * Same as {@link #schedule(EventIndex, List, long, ProgressListener)}, without a listener.
+   */
+  public BatchSchedule schedule(EventIndex index, List<MeetingRequest> requests,
+      long budgetMillis) {
+    return schedule(index, requests, budgetMillis, NO_LISTENER);
+  }
+
+  /**
+   * Places as many of {@code requests} as possible without conflicts, searching for at most
+   * {@code budgetMillis} milliseconds. The budget includes finding where each meeting could go.
+   *
+   * @param listener Told about every improvement. Called on the calling thread.
+   * @throws IllegalArgumentException If there are more than {@link #MAX_BATCH_SIZE} requests, or
+   *     a request is for a negative duration or more than a day.
+   */
+  public BatchSchedule schedule(EventIndex index, List<MeetingRequest> requests,
+      long budgetMillis, ProgressListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("listener cannot be null");
+    }
+
+    if (requests.size() > MAX_BATCH_SIZE) {
+      throw new IllegalArgumentException(
+          "A batch can hold at most " + MAX_BATCH_SIZE + " meetings");
+    }
+    for (MeetingRequest request : requests) {
+      long duration = request.getDuration();
+      if (duration < 0 || duration > TimeRange.WHOLE_DAY.duration()) {
+        throw new IllegalArgumentException("Meeting duration must be between 0 and "
+            + TimeRange.WHOLE_DAY.duration() + " minutes, not " + duration);
+      }
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    Search search = new Search(index, requests, deadline, listener);
+    search.run(0, 0);
+
+    List<TimeRange> times = new ArrayList<>();
+    for (int i = 0; i < requests.size(); i++) {
+      int start = search.best[i];
+      times.add(start < 0 ? null
+          : TimeRange.fromStartDuration(start, (int) requests.get(i).getDuration()));
+    }
+    return new BatchSchedule(times, search.bestPlaced, !search.timedOut, search.steps);
+  }
+
+  /**
+   * Returns the start times at which the required attendees of {@code request} are free for the
+   * whole meeting.
+   */
+  private int[] candidateStarts(EventIndex index, MeetingRequest request) {
+    long duration = request.getDuration();
+    Collection<TimeRange> windows =
+        findMeetingQuery.findFreeTimes(index, request.getAttendees(), duration);
+    List<Integer> starts = new ArrayList<>();
+    for (TimeRange window : windows) {
+      for (long start = window.start(); start + duration <= window.end(); start += stepMinutes) {
+        starts.add((int) start);
+      }
+    }
+
+    int[] result = new int[starts.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = starts.get(i);
+    }
+    return result;
+  }
+
+  /** The state of one call to {@code schedule}. */
+  private final class Search {
+    private final int total;
+    private final int[][] attendeeIds;
+    private final int[] durations;
+    private final int[][] candidates;
+
+    // The order in which meetings are placed: the ones with the fewest start times first.
+    private final Integer[] order;
+
+    private final int[] current;
+    private final int[] best;
+    private int bestPlaced = 0;
+
+    // The meetings placed so far in the current branch, by attendee id, as packed intervals. The
+    // search only ever removes the meeting it placed last, so each list works like a stack.
+    private final Map<Integer, long[]> placed = new HashMap<>();
+    private final Map<Integer, Integer> placedCounts = new HashMap<>();
+
+    // Ids for the attendees the shared dictionary does not know, which only have a meaning within
+    // this search. They count down from below UNKNOWN so they never clash with real ids.
+    private final Map<String, Integer> localIds = new HashMap<>();
+
+    private final long deadline;
+    private final ProgressListener listener;
+    private long steps = 0;
+    private boolean timedOut = false;
+
+    Search(EventIndex index, List<MeetingRequest> requests, long deadline,
+        ProgressListener listener) {
+      this.total = requests.size();
+      this.attendeeIds = new int[total][];
+      this.durations = new int[total];
+      this.candidates = new int[total][];
+      this.order = new Integer[total];
+      this.current = new int[total];
+      this.best = new int[total];
+      for (int i = 0; i < total; i++) {
+        MeetingRequest request = requests.get(i);
+        attendeeIds[i] = idsOf(request.getAttendees());
+        durations[i] = (int) request.getDuration();
+        candidates[i] = candidateStarts(index, request);
+        order[i] = i;
+      }
+      Arrays.fill(current, -1);
+      Arrays.fill(best, -1);
+      Arrays.sort(order, (a, b) -> Integer.compare(candidates[a].length, candidates[b].length));
+
+      this.deadline = deadline;
+      this.listener = listener;
+    }
+
+    /**
+     * Returns an id for each of {@code names}. People without events still can't be in two
+     * meetings at once, so everyone needs an id, but names sent by clients must not grow the shared
+     * dictionary.
+     */
+    private int[] idsOf(Collection<String> names) {
+      AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+      int[] known = dictionary.lookupAll(names);
+      if (known.length == names.size()) {
+        return known;
+      }
+
+      int[] ids = new int[names.size()];
+      int i = 0;
+      for (String name : names) {
+        int id = dictionary.lookup(name);
+        if (id == AttendeeDictionary.UNKNOWN) {
+          id = localIds.computeIfAbsent(name,
+              unknown -> AttendeeDictionary.UNKNOWN - 1 - localIds.size());
+        }
+        ids[i++] = id;
+      }
+      return ids;
+    }
+
+    /** Places the meetings from position {@code next} of the order onwards. */
+    void run(int next, int placedCount) {
+      steps++;
+      if (steps % STEPS_PER_CLOCK_CHECK == 0 && System.nanoTime() > deadline) {
+        timedOut = true;
+      }
+      if (timedOut || bestPlaced == total) {
+        return;
+      }
+
+      if (placedCount > bestPlaced) {
+        bestPlaced = placedCount;
+        System.arraycopy(current, 0, best, 0, total);
+        listener.onProgress(bestPlaced, total, steps);
+      }
+
+      // Even placing every remaining meeting would not beat the best schedule.
+      if (next == total || placedCount + (total - next) <= bestPlaced) {
+        return;
+      }
+
+      int meeting = order[next];
+      for (int start : candidates[meeting]) {
+        if (fits(meeting, start)) {
+          place(meeting, start);
+          run(next + 1, placedCount + 1);
+          unplace(meeting);
+          if (timedOut || bestPlaced == total) {
+            return;
+          }
+        }
+      }
+
+      // Try leaving this meeting out.
+      run(next + 1, placedCount);
+    }
+
+    private boolean fits(int meeting, int start) {
+      long slot = Intervals.of(start, start + durations[meeting]);
+      for (int attendee : attendeeIds[meeting]) {
+        long[] times = placed.get(attendee);
+        int count = placedCounts.getOrDefault(attendee, 0);
+        for (int i = 0; i < count; i++) {
+          if (Intervals.overlaps(slot, times[i])) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private void place(int meeting, int start) {
+      current[meeting] = start;
+      long slot = Intervals.of(start, start + durations[meeting]);
+      for (int attendee : attendeeIds[meeting]) {
+        int count = placedCounts.getOrDefault(attendee, 0);
+        long[] times = placed.get(attendee);
+        if (times == null || times.length == count) {
+          times = times == null ? new long[4] : Arrays.copyOf(times, count * 2);
+          placed.put(attendee, times);
+        }
+        times[count] = slot;
+        placedCounts.put(attendee, count + 1);
+      }
+    }
+
+    private void unplace(int meeting) {
+      current[meeting] = -1;
+      for (int attendee : attendeeIds[meeting]) {
+        placedCounts.put(attendee, placedCounts.get(attendee) - 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,406 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact binary format for moving whole calendars in and out of the scheduler. Much smaller and
+ * faster to read than a JSON array of events, since attendee names are written once and times are
+ * small numbers.
+ *
+ * <p>A calendar is laid out as follows, where every number is an unsigned varint (7 bits per byte,
+ * lowest first, high bit set on all but the last byte) and every string is its length in bytes
+ * followed by its UTF-8 bytes:
+ *
+ * <ul>
+ *   <li>The bytes {@code SPSC} and the format version, which is 1.
+ *   <li>The number of attendees, followed by their names. An event refers to an attendee by its
+ *       position in this list.
+ *   <li>The number of events, followed by the events. Each event is its id minus the previous id
+ *       and its start minus the previous start, both zigzag encoded so that they may be negative,
+ *       then its duration, its title, the number of attendees and the attendee positions in
+ *       ascending order, each minus the previous one.
+ * </ul>
+ *
+ * <p>Both {@link Reader} and {@link Writer} work on one event at a time, so a calendar never needs
+ * to be held in memory twice.
+ */
+public final class CalendarFormat {
+  private static final byte[] MAGIC = {'S', 'P', 'S', 'C'};
+  private static final int VERSION = 1;
+
+  // Keep a corrupt length or count from making the reader allocate a huge array.
+  private static final int MAX_STRING_BYTES = 1 << 16;
+  private static final int MAX_ATTENDEES = 1 << 20;
+
+  private CalendarFormat() {}
+
+  /**
+   * Writes {@code events}, keyed by id, to {@code out} and flushes it.
+   */
+  public static void write(Map<Long, Event> events, OutputStream out) throws IOException {
+    // List the attendees in order of id, so that every event's attendees are already in order.
+    BitSet used = new BitSet();
+    for (Event event : events.values()) {
+      for (int id : event.getAttendeeIds()) {
+        used.set(id);
+      }
+    }
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    List<String> attendees = new ArrayList<>(used.cardinality());
+    for (int id = used.nextSetBit(0); id >= 0; id = used.nextSetBit(id + 1)) {
+      attendees.add(dictionary.nameOf(id));
+    }
+
+    Writer writer = new Writer(out, attendees, events.size());
+    for (Map.Entry<Long, Event> entry : events.entrySet()) {
+      writer.write(entry.getKey(), entry.getValue());
+    }
+    writer.flush();
+  }
+
+  /**
+   * Reads a whole calendar from {@code in}, keyed by id in the order the events were written. No
+   * attendee is added to the shared {@link AttendeeDictionary} unless the whole calendar is valid.
+   *
+   * @throws IOException If reading fails or the data is not a valid calendar, which includes
+   *     calendars with two events under the same id.
+   */
+  public static Map<Long, Event> read(InputStream in) throws IOException {
+    Reader reader = new Reader(in);
+    List<RawEvent> rawEvents = new ArrayList<>();
+    Set<Long> ids = new HashSet<>();
+    while (reader.hasNext()) {
+      RawEvent raw = reader.readRaw();
+      if (!ids.add(raw.id)) {
+        throw new IOException("Duplicate event id " + raw.id);
+      }
+      rawEvents.add(raw);
+    }
+
+    Map<Long, Event> events = new LinkedHashMap<>();
+    for (RawEvent raw : rawEvents) {
+      events.put(raw.id, reader.toEvent(raw));
+    }
+    return events;
+  }
+
+  /**
+   * Writes a calendar one event at a time. The attendees and the number of events are given up
+   * front, and exactly that many events must then be written.
+   */
+  public static final class Writer {
+    private final DataOutputStream out;
+
+    // Indexed by attendee id in the shared AttendeeDictionary. The position of the attendee in the
+    // calendar, or -1 if the calendar does not list them.
+    private final int[] positions;
+    private int remaining;
+    private long previousId = 0;
+    private int previousStart = 0;
+
+    /**
+     * Starts a calendar with the given attendees and number of events.
+     */
+    public Writer(OutputStream out, List<String> attendees, int eventCount) throws IOException {
+      if (attendees.size() > MAX_ATTENDEES) {
+        throw new IllegalArgumentException("A calendar can list at most " + MAX_ATTENDEES
+            + " attendees");
+      }
+      this.out = new DataOutputStream(new BufferedOutputStream(out));
+      this.remaining = eventCount;
+
+      int[] ids = new int[attendees.size()];
+      int size = 0;
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = AttendeeDictionary.getInstance().idOf(attendees.get(i));
+        size = Math.max(size, ids[i] + 1);
+      }
+      this.positions = new int[size];
+      Arrays.fill(positions, -1);
+      for (int i = 0; i < ids.length; i++) {
+        positions[ids[i]] = i;
+      }
+
+      this.out.write(MAGIC);
+      writeVarint(VERSION);
+      writeVarint(attendees.size());
+      for (String name : attendees) {
+        writeString(name);
+      }
+      writeVarint(eventCount);
+    }
+
+    /**
+     * Writes the event with the given id.
+     *
+     * @throws IllegalArgumentException If all events have already been written, or the event has
+     *     an attendee that the calendar does not list.
+     */
+    public void write(long id, Event event) throws IOException {
+      if (remaining == 0) {
+        throw new IllegalArgumentException("All events have already been written");
+      }
+
+      int[] ids = event.getAttendeeIds();
+      int[] attendees = new int[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        int position = ids[i] < positions.length ? positions[ids[i]] : -1;
+        if (position < 0) {
+          throw new IllegalArgumentException(
+              "Attendee " + AttendeeDictionary.getInstance().nameOf(ids[i]) + " is not listed");
+        }
+        attendees[i] = position;
+      }
+      Arrays.sort(attendees);
+
+      TimeRange when = event.getWhen();
+      writeVarint(zigzag(id - previousId));
+      writeVarint(zigzag(when.start() - previousStart));
+      writeVarint(when.duration());
+      writeString(event.getTitle());
+      writeVarint(attendees.length);
+      int previous = 0;
+      for (int attendee : attendees) {
+        writeVarint(attendee - previous);
+        previous = attendee;
+      }
+
+      previousId = id;
+      previousStart = when.start();
+      remaining--;
+    }
+
+    /**
+     * Pushes everything written so far to the underlying stream.
+     */
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    private void writeString(String string) throws IOException {
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      writeVarint(bytes.length);
+      out.write(bytes);
+    }
+
+    private void writeVarint(long value) throws IOException {
+      while ((value & ~0x7FL) != 0) {
+        out.write((int) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      out.write((int) value);
+    }
+
+    private static long zigzag(long value) {
+      return (value << 1) ^ (value >> 63);
+    }
+  }
+
+  /**
+   * Reads a calendar one event at a time. An attendee is only added to the shared {@link
+   * AttendeeDictionary} once an event that mentions them has been read in full, so a corrupt or
+   * hostile calendar cannot fill the dictionary with names no event uses.
+   */
+  public static final class Reader {
+    private final DataInputStream in;
+
+    // Indexed by the position of the attendee in the calendar.
+    private final List<String> names;
+
+    // The id of each attendee in the dictionary, or UNKNOWN until an event mentions them.
+    private final int[] attendeeIds;
+    private int remaining;
+    private long previousId = 0;
+    private long previousStart = 0;
+
+    /**
+     * Reads the start of a calendar from {@code in}.
+     *
+     * @throws IOException If reading fails or the data is not a valid calendar.
+     */
+    public Reader(InputStream in) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(in));
+
+      byte[] magic = new byte[MAGIC.length];
+      this.in.readFully(magic);
+      if (!Arrays.equals(magic, MAGIC)) {
+        throw new IOException("Not a calendar");
+      }
+      int version = readCount();
+      if (version != VERSION) {
+        throw new IOException("Unsupported calendar version " + version);
+      }
+
+      int attendeeCount = readCount();
+      if (attendeeCount > MAX_ATTENDEES) {
+        throw new IOException("Too many attendees");
+      }
+      // Grows as names are actually read, so a count larger than the data costs nothing.
+      this.names = new ArrayList<>();
+      for (int i = 0; i < attendeeCount; i++) {
+        names.add(readString());
+      }
+      this.attendeeIds = new int[attendeeCount];
+      Arrays.fill(attendeeIds, AttendeeDictionary.UNKNOWN);
+      this.remaining = readCount();
+    }
+
+    /**
+     * Checks if there are events left to read.
+     */
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    /**
+     * Reads the next event, keyed by its id.
+     *
+     * @throws IOException If reading fails or the data is not a valid calendar.
+     */
+    public Map.Entry<Long, Event> next() throws IOException {
+      RawEvent raw = readRaw();
+      return new SimpleImmutableEntry<>(raw.id, toEvent(raw));
+    }
+
+    /** Reads and checks the next event without touching the dictionary. */
+    private RawEvent readRaw() throws IOException {
+      if (remaining == 0) {
+        throw new IllegalStateException("No events left");
+      }
+
+      long id = previousId + unzigzag(readVarint());
+      long start = previousStart + unzigzag(readVarint());
+      long duration = readVarint();
+      if (id < 0 || start < 0 || duration < 0 || start + duration > Integer.MAX_VALUE) {
+        throw new IOException("Invalid event");
+      }
+      String title = readString();
+
+      int count = readCount();
+      if (count > attendeeIds.length) {
+        throw new IOException("Invalid attendee count");
+      }
+      int[] positions = new int[count];
+      int position = -1;
+      for (int i = 0; i < positions.length; i++) {
+        long next = (i == 0 ? 0 : position) + readVarint();
+        if ((i > 0 && next == position) || next >= attendeeIds.length) {
+          throw new IOException("Invalid attendee");
+        }
+        position = (int) next;
+        positions[i] = position;
+      }
+
+      previousId = id;
+      previousStart = start;
+      remaining--;
+      return new RawEvent(id, (int) start, (int) duration, title, positions);
+    }
+
+    /**
+     * Turns an event that has been read in full into an event, adding its attendees to the
+     * dictionary if they are not there yet.
+     */
+    private Event toEvent(RawEvent raw) {
+      AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+      int[] ids = new int[raw.positions.length];
+      for (int i = 0; i < ids.length; i++) {
+        int position = raw.positions[i];
+        if (attendeeIds[position] == AttendeeDictionary.UNKNOWN) {
+          attendeeIds[position] = dictionary.idOf(names.get(position));
+        }
+        ids[i] = attendeeIds[position];
+      }
+      // The positions are in order but the ids they map to need not be, if other names were in
+      // the dictionary before this calendar was read.
+      Arrays.sort(ids);
+      return new Event(raw.title, TimeRange.fromStartDuration(raw.start, raw.duration), ids);
+    }
+
+    private String readString() throws IOException {
+      int length = readCount();
+      if (length > MAX_STRING_BYTES) {
+        throw new IOException("String too long");
+      }
+      byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Reads a varint that counts something, which cannot be larger than an int. */
+    private int readCount() throws IOException {
+      long value = readVarint();
+      if (value > Integer.MAX_VALUE) {
+        throw new IOException("Invalid count");
+      }
+      return (int) value;
+    }
+
+    private long readVarint() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = in.read();
+        if (b < 0) {
+          throw new EOFException();
+        }
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Invalid varint");
+    }
+
+    private static long unzigzag(long value) {
+      return (value >>> 1) ^ -(value & 1);
+    }
+  }
+
+  /** An event as it was read, with its attendees given by their position in the calendar. */
+  private static final class RawEvent {
+    final long id;
+    final int start;
+    final int duration;
+    final String title;
+    final int[] positions;
+
+    RawEvent(long id, int start, int duration, String title, int[] positions) {
+      this.id = id;
+      this.start = start;
+      this.duration = duration;
+      this.title = title;
+      this.positions = positions;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.appengine.api.ThreadManager;
+import com.google.appengine.api.datastore.AsyncDatastoreService;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.KeyRange;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Saves scheduler events as Datastore entities. Each entity's key id is the event's id in the
+ * {@link EventStore}. The attendees are an indexed property so that the events of one person can
+ * be fetched without reading the whole calendar.
+ *
+ * <p>Ids of new events are allocated by Datastore, so stores that save to the same Datastore never
+ * hand out the same id. Stores do not see each other's changes though, so the app is configured
+ * to run on a single instance (see appengine-web.xml).
+ */
+public final class DatastoreEvents implements EventStore.Persistence {
+  private static final String EVENT_KIND = "Event";
+
+  // Events are spread over this many shards so that loading can run one query per shard at once.
+  private static final int LOAD_SHARDS = 8;
+
+  // How many entities each query fetches per round trip.
+  private static final int LOAD_BATCH_SIZE = 1000;
+
+  // Datastore accepts at most this many entities in one put.
+  private static final int PUT_BATCH_SIZE = 500;
+
+  private final DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+
+  @Override
+  public void put(long id, Event event) {
+    datastore.put(toEntity(id, event));
+  }
+
+  @Override
+  public void delete(long id) {
+    datastore.delete(KeyFactory.createKey(EVENT_KIND, id));
+  }
+
+  @Override
+  public long allocateIds(int count) {
+    return datastore.allocateIds(EVENT_KIND, count).getStart().getId();
+  }
+
+  /**
+   * Makes sure Datastore never allocates the ids from 1 up to {@code maxId}, which events saved
+   * before ids were allocated by Datastore may be using.
+   */
+  public void reserveIds(long maxId) {
+    if (maxId > 0) {
+      datastore.allocateIdRange(new KeyRange(null, EVENT_KIND, 1, maxId));
+    }
+  }
+
+  /**
+   * Saves all of {@code events} in as few round trips as Datastore allows.
+   */
+  @Override
+  public void putAll(Map<Long, Event> events) {
+    List<Entity> entities = new ArrayList<>();
+    for (Map.Entry<Long, Event> entry : events.entrySet()) {
+      entities.add(toEntity(entry.getKey(), entry.getValue()));
+      if (entities.size() == PUT_BATCH_SIZE) {
+        datastore.put(entities);
+        entities.clear();
+      }
+    }
+    if (!entities.isEmpty()) {
+      datastore.put(entities);
+    }
+  }
+
+  /**
+   * Loads every saved event keyed by its id. Each shard is drained by its own thread, so the
+   * batches of all shards are fetched at the same time, and each thread turns its entities into
+   * events as they arrive.
+   */
+  public Map<Long, Event> loadAll() {
+    AsyncDatastoreService asyncDatastore = DatastoreServiceFactory.getAsyncDatastoreService();
+    FetchOptions fetchOptions =
+        FetchOptions.Builder.withChunkSize(LOAD_BATCH_SIZE).prefetchSize(LOAD_BATCH_SIZE);
+
+    Map<Long, Event> events = new ConcurrentHashMap<>();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(LOAD_SHARDS, ThreadManager.currentRequestThreadFactory());
+    try {
+      List<Future<?>> shards = new ArrayList<>();
+      for (int shard = 0; shard < LOAD_SHARDS; shard++) {
+        Query query = new Query(EVENT_KIND)
+            .setFilter(new FilterPredicate("shard", FilterOperator.EQUAL, shard));
+        Iterator<Entity> entities = asyncDatastore.prepare(query).asIterator(fetchOptions);
+        shards.add(executor.submit(() -> entities.forEachRemaining(
+            entity -> events.put(entity.getKey().getId(), toEvent(entity)))));
+      }
+
+      for (Future<?> shard : shards) {
+        shard.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading events", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Could not load events", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return events;
+  }
+
+  private static Entity toEntity(long id, Event event) {
+    Key key = KeyFactory.createKey(EVENT_KIND, id);
+    TimeRange when = event.getWhen();
+
+    Entity entity = new Entity(key);
+    entity.setUnindexedProperty("title", event.getTitle());
+    entity.setUnindexedProperty("start", when.start());
+    entity.setUnindexedProperty("duration", when.duration());
+    entity.setProperty("attendees", new ArrayList<>(event.getAttendees()));
+    entity.setProperty("shard", id % LOAD_SHARDS);
+    return entity;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Event toEvent(Entity entity) {
+    String title = (String) entity.getProperty("title");
+    long start = (long) entity.getProperty("start");
+    long duration = (long) entity.getProperty("duration");
+
+    // Datastore stores an empty list as no property at all.
+    Collection<String> attendees = (Collection<String>) entity.getProperty("attendees");
+    if (attendees == null) {
+      attendees = new ArrayList<>();
+    }
+
+    return new Event(title, TimeRange.fromStartDuration((int) start, (int) duration), attendees);
+  }
+}
@@ -14,6 +14,7 @@
 
 package com.google.sps;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -26,7 +27,13 @@ import java.util.Set;
 public final class Event {
   private final String title;
   private final TimeRange when;
-  private final Set<String> attendees = new HashSet<>();
+
+  // Sorted ids from the shared {@code AttendeeDictionary}. Much smaller than a set of names, and
+  // comparing ints is cheaper than hashing strings.
+  private final int[] attendeeIds;
+
+  // The names of the attendees, built on first use. Transient so that Gson leaves it out.
+  private transient volatile Set<String> attendees;
 
   /**
    * Creates a new event.
@@ -50,7 +57,17 @@ public final class Event {
 
     this.title = title;
     this.when = when;
-    this.attendees.addAll(attendees);
+    this.attendeeIds = AttendeeDictionary.getInstance().idsOf(attendees);
+  }
+
+  /**
+   * Creates a new event from attendee ids that are already sorted and free of duplicates, without
+   * looking up any names. The array is not copied.
+   */
+  Event(String title, TimeRange when, int[] attendeeIds) {
+    this.title = title;
+    this.when = when;
+    this.attendeeIds = attendeeIds;
   }
 
   /**
@@ -71,9 +88,28 @@ public final class Event {
    * Returns a read-only set of required attendees for this event.
    */
   public Set<String> getAttendees() {
-    // Return the attendees as an unmodifiable set so that the caller can't change our
-    // internal data.
-    return Collections.unmodifiableSet(attendees);
+    Set<String> result = attendees;
+    if (result == null) {
+      AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+      Set<String> names = new HashSet<>();
+      for (int id : attendeeIds) {
+        names.add(dictionary.nameOf(id));
+      }
+
+      // Keep the attendees as an unmodifiable set so that the caller can't change our
+      // internal data.
+      result = Collections.unmodifiableSet(names);
+      attendees = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the sorted ids of the attendees in the shared {@code AttendeeDictionary}. The array is
+   * not copied, so callers must not change it.
+   */
+  int[] getAttendeeIds() {
+    return attendeeIds;
   }
 
   @Override
@@ -89,8 +125,8 @@ public final class Event {
   }
 
   private static boolean equals(Event a, Event b) {
-    // {@code attendees} must be a set for equals to work as expected. According to the {@code Set}
-    // interface documentation, equals will check for set-equality across all set implementations.
-    return a.title.equals(b.title) && a.when.equals(b.when) && a.attendees.equals(b.attendees);
+    // Attendee ids are sorted and free of duplicates, so equal arrays mean equal sets of attendees.
+    return a.title.equals(b.title) && a.when.equals(b.when)
+        && Arrays.equals(a.attendeeIds, b.attendeeIds);
   }
 }
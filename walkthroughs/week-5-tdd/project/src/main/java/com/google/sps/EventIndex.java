@@ -0,0 +1,337 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A read-only index over a snapshot of events that groups them by attendee. Each attendee's events
+ * are kept sorted by start time so that a query only needs to look at the events of the people it
+ * asks about instead of filtering and sorting every known event. An index is never modified once
+ * created, so it can be shared between threads and reused for any number of queries.
+ */
+public final class EventIndex {
+  /**
+   * A comparator for sorting events by the start of their {@code TimeRange} in ascending order.
+   */
+  public static final Comparator<Event> ORDER_BY_START = new Comparator<Event>() {
+    @Override
+    public int compare(Event a, Event b) {
+      return TimeRange.ORDER_BY_START.compare(a.getWhen(), b.getWhen());
+    }
+  };
+
+  private static final Event[] NO_EVENTS = new Event[0];
+
+  // Indexes with at least this many events are built on all cores.
+  private static final int PARALLEL_THRESHOLD = 10_000;
+
+  // Hands out versions to indexes. Shared by all indexes so that a version is never reused, even
+  // by an index that was built from scratch.
+  private static final AtomicLong nextVersion = new AtomicLong(1);
+
+  /** An index without any events. */
+  public static final EventIndex EMPTY = new EventIndex(new Event[0][], 0, new long[0]);
+
+  // Indexed by attendee id. Attendees past the end of the array or with a null entry have no
+  // events.
+  private final Event[][] eventsByAttendee;
+
+  // The version of the index that was built from scratch and that this index was derived from.
+  private final long baseVersion;
+
+  // Indexed by attendee id. The version of the index in which the attendee's events last changed,
+  // or 0 if they have not changed since the base version.
+  private final long[] attendeeVersions;
+
+  /**
+   * Creates an index over {@code events}. Events that take no time are left out since nobody is
+   * busy during them.
+   *
+   * @param events The events to index. Must be non-null.
+   */
+  public EventIndex(Collection<Event> events) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null");
+    }
+
+    // Large snapshots are loaded at startup, where spreading the work across cores matters.
+    boolean parallel = events.size() >= PARALLEL_THRESHOLD;
+
+    Stream<Event> stream = parallel ? events.parallelStream() : events.stream();
+    Map<Integer, List<Event>> grouped = stream
+        .filter(event -> event.getWhen().duration() > 0)
+        .flatMap(event -> Arrays.stream(event.getAttendeeIds())
+            .mapToObj(id -> new SimpleImmutableEntry<>(id, event)))
+        .collect(Collectors.groupingBy(Map.Entry::getKey,
+            Collectors.mapping(Map.Entry::getValue, Collectors.toList())));
+
+    int size = 0;
+    for (int id : grouped.keySet()) {
+      size = Math.max(size, id + 1);
+    }
+
+    Event[][] byAttendee = new Event[size][];
+    Stream<Map.Entry<Integer, List<Event>>> entries =
+        parallel ? grouped.entrySet().parallelStream() : grouped.entrySet().stream();
+    entries.forEach(entry -> {
+      Event[] attendeeEvents = entry.getValue().toArray(NO_EVENTS);
+      Arrays.sort(attendeeEvents, ORDER_BY_START);
+      byAttendee[entry.getKey()] = attendeeEvents;
+    });
+    this.eventsByAttendee = byAttendee;
+    this.baseVersion = nextVersion.getAndIncrement();
+    this.attendeeVersions = new long[0];
+  }
+
+  private EventIndex(Event[][] eventsByAttendee, long baseVersion, long[] attendeeVersions) {
+    this.eventsByAttendee = eventsByAttendee;
+    this.baseVersion = baseVersion;
+    this.attendeeVersions = attendeeVersions;
+  }
+
+  /**
+   * Returns the version of the index in which the events of any of {@code attendeeIds} last
+   * changed. If an answer was computed from an index with at least this version, it still holds
+   * for this index. Versions only ever grow.
+   */
+  long versionOf(int[] attendeeIds) {
+    long version = baseVersion;
+    for (int attendee : attendeeIds) {
+      if (attendee < attendeeVersions.length) {
+        version = Math.max(version, attendeeVersions[attendee]);
+      }
+    }
+    return version;
+  }
+
+  /**
+   * Returns a new index that also contains {@code event}. Only the entries of the event's attendees
+   * are copied; everything else is shared with this index, which is left unchanged.
+   */
+  public EventIndex withEvent(Event event) {
+    if (event.getWhen().duration() <= 0) {
+      return this;
+    }
+
+    int[] attendeeIds = event.getAttendeeIds();
+    int size = eventsByAttendee.length;
+    if (attendeeIds.length > 0) {
+      size = Math.max(size, attendeeIds[attendeeIds.length - 1] + 1);
+    }
+
+    Event[][] updated = Arrays.copyOf(eventsByAttendee, size);
+    long[] versions = Arrays.copyOf(attendeeVersions, size);
+    long version = nextVersion.getAndIncrement();
+    for (int attendee : attendeeIds) {
+      versions[attendee] = version;
+      Event[] current = eventsOf(attendee);
+
+      // Insert after any events with the same start so that earlier additions stay first.
+      int position = current.length;
+      while (position > 0 && ORDER_BY_START.compare(current[position - 1], event) > 0) {
+        position--;
+      }
+
+      Event[] attendeeEvents = new Event[current.length + 1];
+      System.arraycopy(current, 0, attendeeEvents, 0, position);
+      attendeeEvents[position] = event;
+      System.arraycopy(current, position, attendeeEvents, position + 1, current.length - position);
+      updated[attendee] = attendeeEvents;
+    }
+    return new EventIndex(updated, baseVersion, versions);
+  }
+
+  /**
+   * Returns a new index that also contains all of {@code events}. Like {@link #withEvent(Event)},
+   * only the entries of the attendees of the new events are copied, and only their versions
+   * change, but each of those entries is copied once however many events it gains.
+   */
+  public EventIndex withEvents(Collection<Event> events) {
+    Map<Integer, List<Event>> added = new HashMap<>();
+    int size = eventsByAttendee.length;
+    for (Event event : events) {
+      if (event.getWhen().duration() <= 0) {
+        continue;
+      }
+      for (int attendee : event.getAttendeeIds()) {
+        added.computeIfAbsent(attendee, id -> new ArrayList<>()).add(event);
+        size = Math.max(size, attendee + 1);
+      }
+    }
+    if (added.isEmpty()) {
+      return this;
+    }
+
+    Event[][] updated = Arrays.copyOf(eventsByAttendee, size);
+    long[] versions = Arrays.copyOf(attendeeVersions, size);
+    long version = nextVersion.getAndIncrement();
+    for (Map.Entry<Integer, List<Event>> entry : added.entrySet()) {
+      int attendee = entry.getKey();
+      versions[attendee] = version;
+
+      // A stable sort keeps the new events in the order they were given.
+      Event[] current = eventsOf(attendee);
+      Event[] fresh = entry.getValue().toArray(NO_EVENTS);
+      Arrays.sort(fresh, ORDER_BY_START);
+
+      // Merge, taking existing events first among those with the same start, as withEvent does.
+      Event[] attendeeEvents = new Event[current.length + fresh.length];
+      int i = 0;
+      int j = 0;
+      for (int k = 0; k < attendeeEvents.length; k++) {
+        if (j == fresh.length
+            || (i < current.length && ORDER_BY_START.compare(current[i], fresh[j]) <= 0)) {
+          attendeeEvents[k] = current[i++];
+        } else {
+          attendeeEvents[k] = fresh[j++];
+        }
+      }
+      updated[attendee] = attendeeEvents;
+    }
+    return new EventIndex(updated, baseVersion, versions);
+  }
+
+  /**
+   * Returns a new index without {@code event}. Events are matched by identity, so an equal but
+   * different instance is not removed. This index is left unchanged.
+   */
+  public EventIndex withoutEvent(Event event) {
+    Event[][] updated = eventsByAttendee.clone();
+    long[] versions = Arrays.copyOf(attendeeVersions, eventsByAttendee.length);
+    long version = nextVersion.getAndIncrement();
+    for (int attendee : event.getAttendeeIds()) {
+      Event[] current = eventsOf(attendee);
+      int position = indexOf(current, event);
+      if (position < 0) {
+        continue;
+      }
+
+      versions[attendee] = version;
+      if (current.length == 1) {
+        updated[attendee] = null;
+        continue;
+      }
+      Event[] attendeeEvents = new Event[current.length - 1];
+      System.arraycopy(current, 0, attendeeEvents, 0, position);
+      System.arraycopy(
+          current, position + 1, attendeeEvents, position, current.length - position - 1);
+      updated[attendee] = attendeeEvents;
+    }
+    return new EventIndex(updated, baseVersion, versions);
+  }
+
+  /**
+   * Returns the events that at least one of {@code attendees} is attending, sorted by start time
+   * with the earliest first. Each event appears once even if several of the attendees share it.
+   * The returned list is a fresh copy that the caller is free to modify.
+   */
+  public List<Event> eventsFor(Collection<String> attendees) {
+    return eventsFor(AttendeeDictionary.getInstance().lookupAll(attendees));
+  }
+
+  /**
+   * Same as {@link #eventsFor(Collection)}, but takes sorted attendee ids from the shared {@code
+   * AttendeeDictionary}.
+   */
+  List<Event> eventsFor(int[] attendeeIds) {
+    List<Event> result = new ArrayList<>();
+    if (attendeeIds.length == 1) {
+      // A single attendee's events are already unique and sorted.
+      Collections.addAll(result, eventsOf(attendeeIds[0]));
+      return result;
+    }
+
+    // An event shared by several of the attendees is only taken from the one with the smallest id,
+    // which is the first of them to be visited.
+    BitSet seen = new BitSet();
+    for (int attendee : attendeeIds) {
+      seen.set(attendee);
+      for (Event event : eventsOf(attendee)) {
+        if (firstSeenAttendee(event, seen) == attendee) {
+          result.add(event);
+        }
+      }
+    }
+    Collections.sort(result, ORDER_BY_START);
+    return result;
+  }
+
+  /**
+   * Returns how many entries {@link #busyTimesFor(int[], long[])} writes for {@code attendeeIds}.
+   */
+  int countBusyTimesFor(int[] attendeeIds) {
+    int count = 0;
+    for (int attendee : attendeeIds) {
+      count += eventsOf(attendee).length;
+    }
+    return count;
+  }
+
+  /**
+   * Writes the times of the events of {@code attendeeIds} to {@code out} as packed {@link
+   * Intervals}, without sorting them across attendees or removing events that several of them
+   * share. This creates no objects, which is what the query path needs.
+   *
+   * @return The number of ranges written, which is {@link #countBusyTimesFor(int[])}.
+   */
+  int busyTimesFor(int[] attendeeIds, long[] out) {
+    int written = 0;
+    for (int attendee : attendeeIds) {
+      for (Event event : eventsOf(attendee)) {
+        out[written++] = Intervals.of(event.getWhen());
+      }
+    }
+    return written;
+  }
+
+  private static int firstSeenAttendee(Event event, BitSet seen) {
+    for (int id : event.getAttendeeIds()) {
+      if (seen.get(id)) {
+        return id;
+      }
+    }
+    return AttendeeDictionary.UNKNOWN;
+  }
+
+  private static int indexOf(Event[] events, Event event) {
+    for (int i = 0; i < events.length; i++) {
+      if (events[i] == event) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private Event[] eventsOf(int attendee) {
+    if (attendee < 0 || attendee >= eventsByAttendee.length) {
+      return NO_EVENTS;
+    }
+    Event[] attendeeEvents = eventsByAttendee[attendee];
+    return attendeeEvents == null ? NO_EVENTS : attendeeEvents;
+  }
+}
@@ -0,0 +1,283 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An immutable version of the events in an {@link EventStore}, keyed by id, together with the
+ * {@link EventIndex} and {@link EventTree} over exactly those events. Everything read from one
+ * snapshot agrees with everything else read from it, however the store changes in the meantime.
+ *
+ * <p>A change creates a new snapshot that shares almost all of its memory with the old one. Events
+ * are kept in chunks of consecutive ids, and a change only copies the chunk holding the changed id
+ * and the small map of chunks, so that writes stay cheap on large calendars.
+ */
+public final class EventSnapshot {
+  /** A snapshot without any events. */
+  public static final EventSnapshot EMPTY =
+      new EventSnapshot(0, Collections.emptyMap(), 0, EventIndex.EMPTY, EventTree.EMPTY);
+
+  // Each chunk holds the events of 2^CHUNK_BITS consecutive ids.
+  private static final int CHUNK_BITS = 9;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  private final long version;
+
+  // Keyed by id >>> CHUNK_BITS. Slots of ids without an event are null. Neither the map nor the
+  // chunks are changed once the snapshot is created.
+  private final Map<Long, Event[]> chunks;
+  private final int size;
+  private final EventIndex index;
+
+  // Built on first use. Once built, every later snapshot updates it in O(log n) instead of
+  // building it again, so reads after a write never pay for a rebuild.
+  private volatile EventTree tree;
+
+  private EventSnapshot(
+      long version, Map<Long, Event[]> chunks, int size, EventIndex index, EventTree tree) {
+    this.version = version;
+    this.chunks = chunks;
+    this.size = size;
+    this.index = index;
+    this.tree = tree;
+  }
+
+  /**
+   * Creates a snapshot holding {@code events}, keyed by their id, with the given version.
+   *
+   * @param events The events to hold. Ids must not be negative.
+   */
+  static EventSnapshot of(long version, Map<Long, Event> events) {
+    Map<Long, Event[]> chunks = new TreeMap<>();
+    for (Map.Entry<Long, Event> entry : events.entrySet()) {
+      long id = entry.getKey();
+      chunks.computeIfAbsent(id >>> CHUNK_BITS, key -> new Event[CHUNK_SIZE])
+          [(int) (id & (CHUNK_SIZE - 1))] = entry.getValue();
+    }
+    return new EventSnapshot(
+        version, chunks, events.size(), new EventIndex(events.values()), null);
+  }
+
+  /**
+   * Returns the version of the store this snapshot was taken at. Later snapshots of the same store
+   * have higher versions.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the number of events in the snapshot.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the event with the given id, or null if there is no such event.
+   */
+  public Event getEvent(long id) {
+    Event[] chunk = id < 0 ? null : chunks.get(id >>> CHUNK_BITS);
+    return chunk == null ? null : chunk[(int) (id & (CHUNK_SIZE - 1))];
+  }
+
+  /**
+   * Returns a read-only view of the events keyed by their id, in order of id.
+   */
+  public Map<Long, Event> getEvents() {
+    return new EventsView();
+  }
+
+  /**
+   * Returns the index over the events in the snapshot.
+   */
+  public EventIndex getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns the interval tree over the events in the snapshot.
+   */
+  public EventTree getTree() {
+    EventTree current = tree;
+    if (current != null) {
+      return current;
+    }
+    // Only readers of this snapshot that also want its tree wait here. Writers never do.
+    synchronized (this) {
+      if (tree == null) {
+        tree = new EventTree(getEvents());
+      }
+      return tree;
+    }
+  }
+
+  /**
+   * Returns the next snapshot, in which {@code id} holds {@code event} instead of whatever it held
+   * before.
+   */
+  EventSnapshot with(long id, Event event) {
+    Event previous = getEvent(id);
+    EventIndex updated = previous == null ? index : index.withoutEvent(previous);
+    EventTree currentTree = tree;
+    EventTree updatedTree = null;
+    if (currentTree != null) {
+      updatedTree =
+          (previous == null ? currentTree : currentTree.without(id, previous)).with(id, event);
+    }
+    return change(id, event, previous == null ? size + 1 : size, updated.withEvent(event),
+        updatedTree);
+  }
+
+  /**
+   * Returns the next snapshot, which also holds {@code added}, keyed by their id. The ids must not
+   * be in this snapshot yet. Only the chunks and index entries that gain events are copied, each of
+   * them once, so adding a batch costs about as much as the batch itself and queries about other
+   * attendees keep their cached answers.
+   */
+  EventSnapshot plus(Map<Long, Event> added) {
+    Map<Long, Event[]> newChunks = new TreeMap<>(chunks);
+    Set<Long> copied = new HashSet<>();
+    for (Map.Entry<Long, Event> entry : added.entrySet()) {
+      long id = entry.getKey();
+      long key = id >>> CHUNK_BITS;
+      if (copied.add(key)) {
+        Event[] chunk = newChunks.get(key);
+        newChunks.put(key, chunk == null ? new Event[CHUNK_SIZE] : chunk.clone());
+      }
+      newChunks.get(key)[(int) (id & (CHUNK_SIZE - 1))] = entry.getValue();
+    }
+
+    EventTree currentTree = tree;
+    if (currentTree != null) {
+      for (Map.Entry<Long, Event> entry : added.entrySet()) {
+        currentTree = currentTree.with(entry.getKey(), entry.getValue());
+      }
+    }
+    return new EventSnapshot(version + 1, newChunks, size + added.size(),
+        index.withEvents(added.values()), currentTree);
+  }
+
+  /**
+   * Returns the next snapshot, without the event with the given id.
+   */
+  EventSnapshot without(long id) {
+    Event previous = getEvent(id);
+    if (previous == null) {
+      return this;
+    }
+    EventTree currentTree = tree;
+    return change(id, null, size - 1, index.withoutEvent(previous),
+        currentTree == null ? null : currentTree.without(id, previous));
+  }
+
+  /**
+   * Returns this snapshot with a different version, for publishing it in place of another.
+   */
+  EventSnapshot withVersion(long newVersion) {
+    return new EventSnapshot(newVersion, chunks, size, index, tree);
+  }
+
+  private EventSnapshot change(
+      long id, Event event, int newSize, EventIndex newIndex, EventTree newTree) {
+    long key = id >>> CHUNK_BITS;
+    Event[] chunk = chunks.get(key);
+    chunk = chunk == null ? new Event[CHUNK_SIZE] : chunk.clone();
+    chunk[(int) (id & (CHUNK_SIZE - 1))] = event;
+
+    Map<Long, Event[]> newChunks = new TreeMap<>(chunks);
+    newChunks.put(key, chunk);
+    return new EventSnapshot(version + 1, newChunks, newSize, newIndex, newTree);
+  }
+
+  /** The events of the snapshot as a map, without copying them. */
+  private final class EventsView extends AbstractMap<Long, Event> {
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Event get(Object key) {
+      return key instanceof Long ? getEvent((Long) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public Set<Map.Entry<Long, Event>> entrySet() {
+      return new AbstractSet<Map.Entry<Long, Event>>() {
+        @Override
+        public int size() {
+          return size;
+        }
+
+        @Override
+        public Iterator<Map.Entry<Long, Event>> iterator() {
+          return new EntryIterator();
+        }
+      };
+    }
+  }
+
+  /** Walks the events in order of id, skipping empty slots. */
+  private final class EntryIterator implements Iterator<Map.Entry<Long, Event>> {
+    private final Iterator<Map.Entry<Long, Event[]>> chunkIterator = chunks.entrySet().iterator();
+    private long base = 0;
+    private Event[] chunk = null;
+    private int slot = CHUNK_SIZE;
+
+    @Override
+    public boolean hasNext() {
+      while (true) {
+        for (; chunk != null && slot < CHUNK_SIZE; slot++) {
+          if (chunk[slot] != null) {
+            return true;
+          }
+        }
+        if (!chunkIterator.hasNext()) {
+          return false;
+        }
+        Map.Entry<Long, Event[]> next = chunkIterator.next();
+        base = next.getKey() << CHUNK_BITS;
+        chunk = next.getValue();
+        slot = 0;
+      }
+    }
+
+    @Override
+    public Map.Entry<Long, Event> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<Long, Event> entry = new SimpleImmutableEntry<>(base + slot, chunk[slot]);
+      slot++;
+      return entry;
+    }
+  }
+}
@@ -0,0 +1,336 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Thread-safe store of the events known to the scheduler. Every event gets a unique id when it is
+ * added, which is then used to update or remove it.
+ *
+ * <p>Reads never block. Writers publish a new {@link EventSnapshot} after every change, which
+ * shares everything except the parts touched by the change. A query that grabbed a snapshot before
+ * a write keeps working on the old snapshot undisturbed.
+ *
+ * <p>A store only lives in memory. To keep its events across restarts, give it a {@link
+ * Persistence} which is told about every change before the change becomes visible. The
+ * persistence is called without holding the store's lock, so a slow save only holds up writes to
+ * the same event, never reads or other writes.
+ */
+public final class EventStore {
+  /**
+   * Saves the changes made to a store somewhere durable.
+   */
+  public interface Persistence {
+    /** Saves {@code event} under {@code id}, replacing any event already saved under it. */
+    void put(long id, Event event);
+
+    /** Deletes the event saved under {@code id}, if any. */
+    void delete(long id);
+
+    /** Saves every event in {@code events} under its id. */
+    default void putAll(Map<Long, Event> events) {
+      for (Map.Entry<Long, Event> entry : events.entrySet()) {
+        put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    /**
+     * Reserves {@code count} consecutive ids that nobody else sharing the saved events will hand
+     * out, and returns the first of them. Returns 0 to let the store pick ids by itself, which is
+     * only safe if no other store saves to the same place.
+     */
+    default long allocateIds(int count) {
+      return 0;
+    }
+  }
+
+  private static final Persistence NO_PERSISTENCE = new Persistence() {
+    @Override
+    public void put(long id, Event event) {}
+
+    @Override
+    public void delete(long id) {}
+  };
+
+  private static final EventStore INSTANCE = new EventStore(Arrays.asList(Events.events));
+
+  // Updates and removes of ids with the same stripe take turns, so that an event is saved and
+  // published in the same order.
+  private static final int ID_STRIPES = 64;
+
+  // Only written while holding the lock on this store.
+  private volatile EventSnapshot snapshot = EventSnapshot.EMPTY;
+  private volatile Persistence persistence = NO_PERSISTENCE;
+
+  // The next id to hand out when the persistence leaves it to the store. Ids start at 1 since
+  // Datastore does not allow 0 as a key id. Only used while holding the lock on this store.
+  private long nextId = 1;
+
+  private final Object[] idLocks = newIdLocks();
+
+  // For each load in progress, the changes made since it started, keyed by id, with null for a
+  // removed event. Only used while holding the lock on this store.
+  private final Set<Map<Long, Event>> changesDuringLoads =
+      Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * Creates an empty store.
+   */
+  public EventStore() {}
+
+  /**
+   * Creates a store holding {@code events}.
+   *
+   * @param events The events to start with. Must be non-null.
+   */
+  public EventStore(Collection<Event> events) {
+    Map<Long, Event> byId = new HashMap<>();
+    for (Event event : events) {
+      byId.put(nextId++, event);
+    }
+    this.snapshot = EventSnapshot.of(1, byId);
+  }
+
+  /**
+   * Returns the store used by the servlets. It starts out with the events in {@link Events}.
+   */
+  public static EventStore getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Sets where changes made from now on are saved. Events already in the store are not saved.
+   */
+  public void setPersistence(Persistence persistence) {
+    this.persistence = persistence == null ? NO_PERSISTENCE : persistence;
+  }
+
+  /**
+   * Replaces the contents of the store with {@code events}, keeping their ids. This is meant for
+   * loading events that have already been saved, so nothing is passed to the persistence.
+   *
+   * <p>The new snapshot is built before taking the lock, so neither readers nor writers wait while
+   * a large calendar is loaded. Changes made while it is being built are applied on top of the
+   * loaded events before they become visible, so none of them are lost.
+   */
+  public void load(Map<Long, Event> events) {
+    Map<Long, Event> changes = new HashMap<>();
+    synchronized (this) {
+      changesDuringLoads.add(changes);
+    }
+
+    EventSnapshot loaded;
+    long loadedNextId = 1;
+    try {
+      loaded = EventSnapshot.of(0, events);
+      for (long id : events.keySet()) {
+        loadedNextId = Math.max(loadedNextId, id + 1);
+      }
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        changesDuringLoads.remove(changes);
+      }
+      throw e;
+    }
+
+    synchronized (this) {
+      changesDuringLoads.remove(changes);
+      for (Map.Entry<Long, Event> change : changes.entrySet()) {
+        loaded = change.getValue() == null
+            ? loaded.without(change.getKey())
+            : loaded.with(change.getKey(), change.getValue());
+      }
+      snapshot = loaded.withVersion(snapshot.getVersion() + 1);
+      // Ids handed out while loading must not be handed out again.
+      nextId = Math.max(nextId, loadedNextId);
+    }
+  }
+
+  /**
+   * Returns a consistent, unchanging view of the events in the store at the time of the call. This
+   * never blocks, and later writes do not change the returned snapshot.
+   */
+  public EventSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Returns the index over the events in the store at the time of the call. Later writes do not
+   * change the returned index.
+   */
+  public EventIndex getIndex() {
+    return snapshot.getIndex();
+  }
+
+  /**
+   * Returns an interval tree over the events in the store at the time of the call. Later writes do
+   * not change the returned tree.
+   */
+  public EventTree getTree() {
+    return snapshot.getTree();
+  }
+
+  /**
+   * Returns a read-only view of all events keyed by their id, as they were at the time of the call.
+   */
+  public Map<Long, Event> getEvents() {
+    return snapshot.getEvents();
+  }
+
+  /**
+   * Returns the event with the given id, or null if there is no such event.
+   */
+  public Event getEvent(long id) {
+    return snapshot.getEvent(id);
+  }
+
+  /**
+   * Adds an event to the store and returns its id.
+   */
+  public long add(Event event) {
+    if (event == null) {
+      throw new IllegalArgumentException("event cannot be null");
+    }
+
+    // Nobody else has the new id yet, so there is nothing to take turns with.
+    Persistence current = persistence;
+    long id = newIds(current, 1);
+    current.put(id, event);
+    synchronized (this) {
+      snapshot = snapshot.with(id, event);
+      recordForLoads(id, event);
+    }
+    return id;
+  }
+
+  /**
+   * Adds all of {@code events} to the store at once and returns their ids, in the same order. This
+   * builds the new snapshot in one pass instead of once per event, which is what large imports
+   * need.
+   */
+  public long[] addAll(Collection<Event> events) {
+    for (Event event : events) {
+      if (event == null) {
+        throw new IllegalArgumentException("events cannot contain null");
+      }
+    }
+
+    Persistence current = persistence;
+    long first = events.isEmpty() ? 0 : newIds(current, events.size());
+    long[] ids = new long[events.size()];
+    Map<Long, Event> added = new LinkedHashMap<>();
+    int i = 0;
+    for (Event event : events) {
+      ids[i] = first + i;
+      added.put(ids[i], event);
+      i++;
+    }
+
+    current.putAll(added);
+    synchronized (this) {
+      snapshot = snapshot.plus(added);
+      for (Map.Entry<Long, Event> entry : added.entrySet()) {
+        recordForLoads(entry.getKey(), entry.getValue());
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Replaces the event with the given id. Returns false if there is no such event.
+   */
+  public boolean update(long id, Event event) {
+    if (event == null) {
+      throw new IllegalArgumentException("event cannot be null");
+    }
+
+    synchronized (lockFor(id)) {
+      if (snapshot.getEvent(id) == null) {
+        return false;
+      }
+
+      persistence.put(id, event);
+      synchronized (this) {
+        snapshot = snapshot.with(id, event);
+        recordForLoads(id, event);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Removes the event with the given id. Returns false if there is no such event.
+   */
+  public boolean remove(long id) {
+    synchronized (lockFor(id)) {
+      if (snapshot.getEvent(id) == null) {
+        return false;
+      }
+
+      persistence.delete(id);
+      synchronized (this) {
+        snapshot = snapshot.without(id);
+        recordForLoads(id, null);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Returns the first of {@code count} new consecutive ids, from the persistence if it hands them
+   * out and from this store otherwise.
+   */
+  private long newIds(Persistence current, int count) {
+    long first = current.allocateIds(count);
+    if (first > 0) {
+      return first;
+    }
+    synchronized (this) {
+      first = nextId;
+      nextId += count;
+      return first;
+    }
+  }
+
+  private Object lockFor(long id) {
+    return idLocks[(int) Math.floorMod(id, (long) ID_STRIPES)];
+  }
+
+  private static Object[] newIdLocks() {
+    Object[] locks = new Object[ID_STRIPES];
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new Object();
+    }
+    return locks;
+  }
+
+  /**
+   * Remembers a change for every load in progress, so that the load does not undo it. Must be
+   * called while holding the lock on this store.
+   */
+  private void recordForLoads(long id, Event event) {
+    for (Map<Long, Event> changes : changesDuringLoads) {
+      changes.put(id, event);
+    }
+  }
+}
@@ -0,0 +1,272 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only interval tree over events that finds the events overlapping a window of time in
+ * O(log n + k) for k results, instead of checking every event.
+ *
+ * <p>The tree is a treap ordered by start, where each node's place among its ancestors is decided
+ * by a priority derived from its id, which keeps the tree balanced without any bookkeeping. Each
+ * node also remembers the latest end in its subtree, which lets a search skip every subtree that
+ * is over before the window begins.
+ *
+ * <p>Nodes are never changed once created. {@link #with} and {@link #without} return a new tree
+ * that shares all but O(log n) nodes with the old one, so a store can keep its tree up to date on
+ * every write instead of rebuilding it.
+ */
+public final class EventTree {
+  /** A tree without any events. */
+  public static final EventTree EMPTY = new EventTree(null, 0);
+
+  private final Node root;
+  private final int size;
+
+  /**
+   * Creates a tree over {@code events}, which are keyed by their id.
+   *
+   * @param events The events to put in the tree. Must be non-null.
+   */
+  public EventTree(Map<Long, Event> events) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null");
+    }
+
+    List<Map.Entry<Long, Event>> entries = new ArrayList<>(events.entrySet());
+    entries.sort(Comparator.comparing((Map.Entry<Long, Event> entry) ->
+        entry.getValue().getWhen().start()).thenComparing(Map.Entry::getKey));
+
+    this.root = build(entries);
+    this.size = entries.size();
+  }
+
+  private EventTree(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Returns the number of events in the tree.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the events that overlap {@code window}, keyed by id and ordered by start. Overlapping
+   * follows {@link TimeRange#overlaps(TimeRange)}, so an event that ends right when the window
+   * starts is left out, and a window without duration finds the events going on at that moment.
+   */
+  public Map<Long, Event> overlapping(TimeRange window) {
+    Map<Long, Event> result = new LinkedHashMap<>();
+    search(root, Intervals.of(window), result);
+    return result;
+  }
+
+  /**
+   * Returns the events going on at {@code time}, keyed by id and ordered by start.
+   */
+  public Map<Long, Event> at(int time) {
+    return overlapping(TimeRange.fromStartDuration(time, 0));
+  }
+
+  /**
+   * Returns a tree that also holds {@code event} under {@code id}. The id must not be in the tree
+   * yet; to replace an event, remove the old one first.
+   */
+  EventTree with(long id, Event event) {
+    Node[] parts = new Node[2];
+    split(root, event.getWhen().start(), id, parts);
+    Node node = new Node(id, event, null, null);
+    return new EventTree(merge(merge(parts[0], node), parts[1]), size + 1);
+  }
+
+  /**
+   * Returns a tree without {@code event}, which must be the event held under {@code id}. Returns
+   * this tree if it does not hold it.
+   */
+  EventTree without(long id, Event event) {
+    Node newRoot = remove(root, event.getWhen().start(), id);
+    return newRoot == root ? this : new EventTree(newRoot, size - 1);
+  }
+
+  private static void search(Node node, long window, Map<Long, Event> result) {
+    // Every event in this subtree is over before the window starts. An event without duration that
+    // starts where the window starts still overlaps it, so only skip when strictly earlier.
+    if (node == null || node.maxEnd < Intervals.start(window)) {
+      return;
+    }
+
+    search(node.left, window, result);
+
+    if (Intervals.overlaps(Intervals.of(node.event.getWhen()), window)) {
+      result.put(node.id, node.event);
+    }
+
+    // Events to the right start no earlier than the node. Once the node starts at or after the end
+    // of the window (or after the moment, for a window without duration), none of them overlap.
+    int limit = Math.max(Intervals.end(window), Intervals.start(window) + 1);
+    if (node.start < limit) {
+      search(node.right, window, result);
+    }
+  }
+
+  /**
+   * Builds the treap over entries sorted by start and id in O(n), by keeping the right spine of
+   * the tree built so far on a stack.
+   */
+  private static Node build(List<Map.Entry<Long, Event>> entries) {
+    int count = entries.size();
+    long[] priorities = new long[count];
+    int[] left = new int[count];
+    int[] right = new int[count];
+    int[] spine = new int[count];
+    int depth = 0;
+    for (int i = 0; i < count; i++) {
+      priorities[i] = priorityOf(entries.get(i).getKey());
+      left[i] = -1;
+      right[i] = -1;
+
+      int last = -1;
+      while (depth > 0 && priorities[spine[depth - 1]] < priorities[i]) {
+        last = spine[--depth];
+      }
+      left[i] = last;
+      if (depth > 0) {
+        right[spine[depth - 1]] = i;
+      }
+      spine[depth++] = i;
+    }
+    return depth == 0 ? null : toNode(entries, left, right, spine[0]);
+  }
+
+  private static Node toNode(List<Map.Entry<Long, Event>> entries, int[] left, int[] right, int i) {
+    if (i < 0) {
+      return null;
+    }
+    return new Node(entries.get(i).getKey(), entries.get(i).getValue(),
+        toNode(entries, left, right, left[i]), toNode(entries, left, right, right[i]));
+  }
+
+  /**
+   * Splits {@code node} into the part before the given start and id, put in {@code parts[0]}, and
+   * the rest, put in {@code parts[1]}.
+   */
+  private static void split(Node node, int start, long id, Node[] parts) {
+    if (node == null) {
+      parts[0] = null;
+      parts[1] = null;
+    } else if (compare(node, start, id) < 0) {
+      split(node.right, start, id, parts);
+      parts[0] = node.withChildren(node.left, parts[0]);
+    } else {
+      split(node.left, start, id, parts);
+      parts[1] = node.withChildren(parts[1], node.right);
+    }
+  }
+
+  /**
+   * Joins two trees where everything in {@code before} comes before everything in {@code after}.
+   */
+  private static Node merge(Node before, Node after) {
+    if (before == null) {
+      return after;
+    }
+    if (after == null) {
+      return before;
+    }
+    if (before.priority > after.priority) {
+      return before.withChildren(before.left, merge(before.right, after));
+    }
+    return after.withChildren(merge(before, after.left), after.right);
+  }
+
+  private static Node remove(Node node, int start, long id) {
+    if (node == null) {
+      return null;
+    }
+    int comparison = compare(node, start, id);
+    if (comparison == 0) {
+      return merge(node.left, node.right);
+    }
+    if (comparison > 0) {
+      Node left = remove(node.left, start, id);
+      return left == node.left ? node : node.withChildren(left, node.right);
+    }
+    Node right = remove(node.right, start, id);
+    return right == node.right ? node : node.withChildren(node.left, right);
+  }
+
+  private static int compare(Node node, int start, long id) {
+    int comparison = Integer.compare(node.start, start);
+    return comparison != 0 ? comparison : Long.compare(node.id, id);
+  }
+
+  /**
+   * Scrambles an id into a priority. The mix is a bijection, so different ids never share a
+   * priority and the shape of the tree only depends on which events it holds.
+   */
+  private static long priorityOf(long id) {
+    long z = id * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /** A node of the tree, ordered by start and then id. */
+  private static final class Node {
+    final long id;
+    final Event event;
+    final int start;
+    final long priority;
+    final Node left;
+    final Node right;
+
+    // The latest end of the events in the subtree rooted at this node.
+    final int maxEnd;
+
+    Node(long id, Event event, Node left, Node right) {
+      this(id, event, priorityOf(id), left, right);
+    }
+
+    private Node(long id, Event event, long priority, Node left, Node right) {
+      this.id = id;
+      this.event = event;
+      this.start = event.getWhen().start();
+      this.priority = priority;
+      this.left = left;
+      this.right = right;
+
+      int end = event.getWhen().end();
+      if (left != null) {
+        end = Math.max(end, left.maxEnd);
+      }
+      if (right != null) {
+        end = Math.max(end, right.maxEnd);
+      }
+      this.maxEnd = end;
+    }
+
+    Node withChildren(Node newLeft, Node newRight) {
+      return new Node(id, event, priority, newLeft, newRight);
+    }
+  }
+}
@@ -19,15 +19,42 @@ import com.google.sps.TimeRange;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
 
 public final class FindMeetingQuery {
 
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // Requests whose attendees have at least this many busy intervals between them have their
+    // intervals merged on all cores. Below it, splitting the work costs more than it saves.
+    private static final int PARALLEL_THRESHOLD = 16_384;
+
+    // Parts of a parallel merge stop splitting once they have fewer intervals than this.
+    private static final int PARALLEL_LEAF_SIZE = 2_048;
+
+    private final WorkingHoursIndex workingHours;
+
+    /** 
+     * Creates a query that lets attendees meet at any time of day.
+     */ 
+    public FindMeetingQuery() {
+        this(WorkingHoursIndex.EMPTY);
+    }
+
+    /** 
+     * Creates a query that only proposes times within the working hours of the attendees. Time 
+     * outside someone's working hours counts as busy, just like their events.
+     */ 
+    public FindMeetingQuery(WorkingHoursIndex workingHours) {
+        if (workingHours == null) {
+            throw new IllegalArgumentException("workingHours cannot be null");
+        }
+        this.workingHours = workingHours;
+    }
+
     /** 
      * Given all known events and a new event request, find all possible time ranges to schedule 
      * the requested event where all attendees (including optional) can attend. If no such time
@@ -42,32 +69,169 @@ public final class FindMeetingQuery {
      *    If none exist, return slots to match required only.
      */ 
     public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+        return query(new EventIndex(events), request);
+    }
+
+    /** 
+     * Same as {@link #query(Collection, MeetingRequest)}, but looks events up in an index that
+     * has already been built so that it can be shared across many requests.
+     */ 
+    public Collection<TimeRange> query(EventIndex index, MeetingRequest request) {
+        return query(index, RecurringEventIndex.EMPTY, 0, request);
+    }
+
+    /** 
+     * Same as {@link #query(EventIndex, MeetingRequest)}, but for a given day on which attendees
+     * are also busy with the occurrences of their recurring events. index holds the one-off events
+     * taking place that day. Occurrences are not created; each series is only asked whether it
+     * takes place on day, so far-off days cost no more than today.
+     */ 
+    public Collection<TimeRange> query(EventIndex index, RecurringEventIndex recurring, int day,
+                                       MeetingRequest request) {
+        Scratch scratch = SCRATCH.get();
+        int count = findMeetingTimes(index, recurring, day, request, scratch);
+        return Intervals.toTimeRanges(scratch.meeting, count);
+    }
+
+    /** 
+     * Finds the times that work for the attendees of request, like {@link #query(EventIndex,
+     * MeetingRequest)}, and pairs each with a room that is free for at least the duration of the
+     * meeting and can seat every required and optional attendee. Rooms are booked by listing their
+     * name among the attendees of an event.
+     *
+     * A time may be split between rooms if no single room is free for all of it. Smaller rooms are
+     * preferred, and a bigger room only shows up for time that no smaller room can offer. The
+     * slots are sorted by start.
+     */ 
+    public List<RoomSlot> queryWithRoom(EventIndex index, Collection<Room> rooms, 
+                                        MeetingRequest request) {
+        Scratch scratch = SCRATCH.get();
+        int meetingCount = findMeetingTimes(index, RecurringEventIndex.EMPTY, 0, request, scratch);
+        List<RoomSlot> slots = new ArrayList<>();
+        if (meetingCount == 0) {
+            return slots;
+        }
+
+        int capacity = request.getAttendees().size() + request.getOptionalAttendees().size();
+        List<Room> candidates = rooms.stream()
+            .filter(room -> room.getCapacity() >= capacity)
+            .sorted(Room.ORDER_BY_CAPACITY)
+            .collect(Collectors.toList());
+
+        // The attendees' times are worked out once, so each room only costs a pass over its own 
+        // bookings. Time is remaining until some room has been found for it.
+        long[] meeting = Arrays.copyOf(scratch.meeting, meetingCount);
+        long[] remaining = meeting.clone();
+        long[] nextRemaining = new long[meetingCount];
+        long[] offered = new long[meetingCount];
+        int remainingCount = meetingCount;
         long duration = request.getDuration();
-        Collection<TimeRange> requiredAttendeeTimes = new ArrayList<>();
-        Collection<TimeRange> optionalAttendeeTimes = new ArrayList<>();
-        Collection<String> requiredAttendees = request.getAttendees();
-        Collection<String> optionalAttendees = request.getOptionalAttendees();
 
-        // Case 0
+        for (Room room : candidates) {
+            if (remainingCount == 0) {
+                // Every time already has a smaller room, so bigger rooms cannot add anything
+                break;
+            }
+
+            int[] roomIds = room.getAttendeeIds();
+            long[] busy = scratch.busy = grow(scratch.busy, index.countBusyTimesFor(roomIds));
+            int busyCount = Intervals.merge(busy, index.busyTimesFor(roomIds, busy));
+            long[] pieces = scratch.free = grow(scratch.free, meetingCount + busyCount);
+            int pieceCount = Intervals.subtract(meeting, meetingCount, busy, busyCount, pieces);
+
+            // Offer the parts of each piece that have no room yet, if they are long enough on
+            // their own. Both lists are sorted, so the parts come out sorted too.
+            offered = grow(offered, pieceCount + remainingCount);
+            int offeredCount = 0;
+            int j = 0;
+            for (int i = 0; i < pieceCount; i++) {
+                long piece = pieces[i];
+                if (Intervals.length(piece) < duration) {
+                    continue;
+                }
+                while (j < remainingCount && Intervals.end(remaining[j]) <= Intervals.start(piece)) {
+                    j++;
+                }
+                for (int r = j; r < remainingCount 
+                        && Intervals.start(remaining[r]) < Intervals.end(piece); r++) {
+                    int start = Math.max(Intervals.start(piece), Intervals.start(remaining[r]));
+                    int end = Math.min(Intervals.end(piece), Intervals.end(remaining[r]));
+                    if (end - start >= duration) {
+                        offered[offeredCount++] = Intervals.of(start, end);
+                        slots.add(new RoomSlot(TimeRange.fromStartEnd(start, end, false), room));
+                    }
+                }
+            }
+
+            nextRemaining = grow(nextRemaining, remainingCount + offeredCount);
+            int nextCount = Intervals.subtract(remaining, remainingCount, offered, offeredCount, 
+                                               nextRemaining);
+            long[] swap = remaining;
+            remaining = nextRemaining;
+            nextRemaining = swap;
+            remainingCount = nextCount;
+        }
+
+        slots.sort(RoomSlot.ORDER_BY_START);
+        return slots;
+    }
+
+    /** 
+     * Suggests the k best meeting times for request, best first, using {@link SlotRanker#DEFAULT}.
+     */ 
+    public List<RankedSlot> queryRanked(EventIndex index, MeetingRequest request, int k) {
+        return queryRanked(index, request, k, SlotRanker.DEFAULT);
+    }
+
+    /** 
+     * Suggests the k best meeting times for request, best first. Unlike {@link #query(EventIndex, 
+     * MeetingRequest)}, suggestions are concrete times as long as the meeting, and a busy optional
+     * attendee lowers a suggestion's score instead of ruling out the whole window.
+     */ 
+    public List<RankedSlot> queryRanked(EventIndex index, MeetingRequest request, int k, 
+                                        SlotRanker ranker) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+
+        long duration = request.getDuration();
+        if (duration < 0) {
+            // Would place candidates past the end of their free windows
+            throw new IllegalArgumentException("duration cannot be negative");
+        }
         if (duration > TimeRange.WHOLE_DAY.duration()) {
             return new ArrayList<>();
         }
 
-        if (!requiredAttendees.isEmpty()) {
-            // Case 3 + 4
-            requiredAttendeeTimes = findFreeTimes(events, requiredAttendees, duration);
-        } else if (!optionalAttendees.isEmpty()) {
-            // Case 2
-            return findFreeTimes(events, optionalAttendees, duration);
-        } else {
-            // Case 1
-            return Arrays.asList(TimeRange.WHOLE_DAY);
+        int[] requiredIds = request.getAttendeeIds();
+        int[] optionalIds = request.getOptionalAttendeeIds();
+        if (request.getAttendees().isEmpty()) {
+            // Treat all optional as if they were required, like query does
+            requiredIds = optionalIds;
+            optionalIds = new int[0];
+        }
+
+        Scratch scratch = SCRATCH.get();
+        long[][] optionalBusy = new long[optionalIds.length][];
+        for (int i = 0; i < optionalIds.length; i++) {
+            int[] attendee = {optionalIds[i]};
+            int busyCount = findBusyTimes(index, RecurringEventIndex.EMPTY, 0, attendee, scratch);
+            optionalBusy[i] = Arrays.copyOf(scratch.busy, busyCount);
         }
-        
-        // In Case 3, this collection is gaurenteed to be empty
-        optionalAttendeeTimes = filterForOptionalAttendees(events, requiredAttendeeTimes, request);
+        int freeCount = findFreeTimes(index, RecurringEventIndex.EMPTY, 0, requiredIds, duration, 
+                                      scratch);
+        return ranker.topK(scratch.free, freeCount, optionalBusy, duration, k);
+    }
 
-        return optionalAttendeeTimes.isEmpty() ? requiredAttendeeTimes : optionalAttendeeTimes;
+    /** 
+     * Answers every request in requests against the same index. The requests are independent of
+     * each other, so they are spread across all available cores. The answer for requests.get(i)
+     * is at index i of the returned list.
+     */ 
+    public List<Collection<TimeRange>> queryAll(EventIndex index, List<MeetingRequest> requests) {
+        return requests.parallelStream()
+            .map(request -> query(index, request))
+            .collect(Collectors.toList());
     }
 
     /** 
@@ -76,111 +240,197 @@ public final class FindMeetingQuery {
      */ 
     public Collection<TimeRange> findFreeTimes(Collection<Event> events, 
                                                Collection<String> attendees, long duration) {
-        // Instantiate events as ArrayList in order to index
-        List<Event> eventsList = new ArrayList<>(events);
+        return findFreeTimes(new EventIndex(events), attendees, duration);
+    }
+
+    /** 
+     * Same as {@link #findFreeTimes(Collection, Collection, long)}, but looks events up in an
+     * index that has already been built.
+     */ 
+    public Collection<TimeRange> findFreeTimes(EventIndex index, 
+                                               Collection<String> attendees, long duration) {
+        int[] attendeeIds = AttendeeDictionary.getInstance().lookupAll(attendees);
+        return findFreeTimes(index, attendeeIds, duration);
+    }
 
-        Collection<TimeRange> possibleTimes = new ArrayList<>();
-        Optional<TimeRange> timeOptional;
+    private Collection<TimeRange> findFreeTimes(EventIndex index, int[] attendeeIds, 
+                                                long duration) {
+        Scratch scratch = SCRATCH.get();
+        int freeCount = findFreeTimes(index, RecurringEventIndex.EMPTY, 0, attendeeIds, duration, 
+                                      scratch);
+        return Intervals.toTimeRanges(scratch.free, freeCount);
+    }
 
-        List<Event> sortedEvents = filterAndSortEvents(eventsList, attendees);
+    /** 
+     * Writes the times that work for the attendees of request to scratch.meeting as packed 
+     * {@code Intervals} and returns how many there are. The cases are the ones listed on
+     * {@link #query(Collection, MeetingRequest)}.
+     */ 
+    private int findMeetingTimes(EventIndex index, RecurringEventIndex recurring, int day, 
+                                 MeetingRequest request, Scratch scratch) {
+        long duration = request.getDuration();
+        Collection<String> requiredAttendees = request.getAttendees();
+        Collection<String> optionalAttendees = request.getOptionalAttendees();
 
-        if (sortedEvents.isEmpty()) {
-            return Arrays.asList(TimeRange.WHOLE_DAY);
+        // Case 0
+        if (duration > TimeRange.WHOLE_DAY.duration()) {
+            return 0;
         }
 
-        // Check for time before first event of day
-        timeOptional = hasSufficientTime(TimeRange.START_OF_DAY, sortedEvents.get(0).getWhen().start(), 
-                                         duration, /*inclusive=*/false);
-        timeOptional.ifPresent(timeRange -> possibleTimes.add(timeRange));
-
-        for (int i = 0; i < sortedEvents.size(); i++) {
-            Event currEvent = sortedEvents.get(i);
-            TimeRange currEventTime = currEvent.getWhen();
-            int currEventEnd = currEventTime.end();
-            
-            if (i != sortedEvents.size() - 1) {
-                TimeRange nextEventTime = sortedEvents.get(i + 1).getWhen();
-                int nextEventStart = nextEventTime.start();
-
-                if (currEventTime.overlaps(nextEventTime)) {
-                    // Check for nested events
-                    if (currEventTime.contains(nextEventTime)) {
-                        sortedEvents.set(i + 1, currEvent);
-                    }
-                } else {
-                    timeOptional = hasSufficientTime(currEventEnd, nextEventStart, duration, 
-                                                     /*inclusive=*/false);
-                    timeOptional.ifPresent(timeRange -> possibleTimes.add(timeRange));
-                }
-            } else {
-                // Check for time after last event of day
-                timeOptional = hasSufficientTime(currEventEnd, TimeRange.END_OF_DAY, duration, 
-                                                 /*inclusive=*/true);
-                timeOptional.ifPresent(timeRange -> possibleTimes.add(timeRange));
+        if (!requiredAttendees.isEmpty()) {
+            // Case 3 + 4
+            int freeCount = findFreeTimes(index, recurring, day, request.getAttendeeIds(), 
+                                          duration, scratch);
+
+            // In Case 3, there are no optional attendees who could be busy
+            int busyCount = findBusyTimes(index, recurring, day, request.getOptionalAttendeeIds(), 
+                                          scratch);
+            long[] meeting = scratch.meeting = grow(scratch.meeting, freeCount);
+            int meetingCount = Intervals.removeOverlapping(scratch.free, freeCount, 
+                                                           scratch.busy, busyCount, meeting);
+            if (meetingCount > 0) {
+                return meetingCount;
             }
+            System.arraycopy(scratch.free, 0, meeting, 0, freeCount);
+            return freeCount;
+        } else if (!optionalAttendees.isEmpty()) {
+            // Case 2
+            int freeCount = findFreeTimes(index, recurring, day, request.getOptionalAttendeeIds(), 
+                                          duration, scratch);
+            long[] meeting = scratch.meeting = grow(scratch.meeting, freeCount);
+            System.arraycopy(scratch.free, 0, meeting, 0, freeCount);
+            return freeCount;
+        } else {
+            // Case 1
+            scratch.meeting[0] = Intervals.of(TimeRange.WHOLE_DAY);
+            return 1;
         }
-        return possibleTimes;
     }
 
     /** 
-     * Checks for sufficient meeting time between startTime and endTime. If there is, 
-     * return Optional of new TimeRange.
-     */
-    private Optional<TimeRange> hasSufficientTime (int startTime, int endTime, long duration, 
-                                                   boolean inclusive) {
-        int freeTime = endTime - startTime;
-        if (freeTime >= duration) {
-            return Optional.of(TimeRange.fromStartEnd(startTime, endTime, inclusive));
+     * Writes the free times of attendeeIds that are at least duration long to scratch.free as
+     * packed {@code Intervals} and returns how many there are. Nothing is allocated unless the
+     * scratch buffers need to grow.
+     */ 
+    private int findFreeTimes(EventIndex index, RecurringEventIndex recurring, int day, 
+                              int[] attendeeIds, long duration, Scratch scratch) {
+        int busyCount = findBusyTimes(index, recurring, day, attendeeIds, scratch);
+        long[] free = scratch.free = grow(scratch.free, busyCount + 1);
+
+        if (busyCount == 0) {
+            free[0] = Intervals.of(TimeRange.WHOLE_DAY);
+            return 1;
         }
-        return Optional.empty();
+
+        int freeCount = Intervals.gaps(scratch.busy, busyCount, TimeRange.START_OF_DAY, 
+                                       TimeRange.END_OF_DAY, duration, free);
+
+        // Time after the last event of the day is checked against END_OF_DAY, but the slot 
+        // itself runs until midnight
+        int lastBusyEnd = Intervals.end(scratch.busy[busyCount - 1]);
+        if (freeCount > 0 && Intervals.start(free[freeCount - 1]) == lastBusyEnd) {
+            free[freeCount - 1] = Intervals.of(lastBusyEnd, TimeRange.END_OF_DAY + 1);
+        }
+        return freeCount;
     }
 
     /** 
-     * Find the TimeRanges in timeOptions which all optional attendees can attend.
+     * Writes the merged times during which any of attendeeIds is busy on day, or outside of their
+     * working hours, to scratch.busy and returns how many there are.
      */ 
-    private Collection<TimeRange> filterForOptionalAttendees (Collection<Event> events, 
-                                Collection<TimeRange> timeOptions, MeetingRequest request) {
-        // Instantiate events as ArrayList in order to use comparator in sorting
-        List<Event> eventsList = new ArrayList<>(events);
-
-        // Make a copy to preserve original
-        Collection<TimeRange> possibleTimes = new ArrayList<>(timeOptions);
+    private int findBusyTimes(EventIndex index, RecurringEventIndex recurring, int day, 
+                              int[] attendeeIds, Scratch scratch) {
+        int maxCount = countBusyTimes(index, recurring, attendeeIds, 0, attendeeIds.length);
+        if (maxCount >= PARALLEL_THRESHOLD && attendeeIds.length > 1) {
+            long[] merged = ForkJoinPool.commonPool().invoke(
+                new BusyTimesTask(index, recurring, day, attendeeIds, 0, attendeeIds.length));
+            scratch.busy = grow(scratch.busy, merged.length);
+            System.arraycopy(merged, 0, scratch.busy, 0, merged.length);
+            return merged.length;
+        }
 
-        List<Event> sortedEvents = filterAndSortEvents(eventsList, request.getOptionalAttendees());
+        long[] busy = scratch.busy = grow(scratch.busy, maxCount);
+        return collectBusyTimes(index, recurring, day, attendeeIds, busy);
+    }
 
-        for (Event event : sortedEvents) {
-            Iterator<TimeRange> timeRangeIterator = possibleTimes.iterator();
-            while (timeRangeIterator.hasNext()) {
+    private int countBusyTimes(EventIndex index, RecurringEventIndex recurring, 
+                               int[] attendeeIds, int from, int to) {
+        int[] part = from == 0 && to == attendeeIds.length 
+            ? attendeeIds 
+            : Arrays.copyOfRange(attendeeIds, from, to);
+        return index.countBusyTimesFor(part) + recurring.countBusyTimesFor(part)
+            + workingHours.countBusyTimesFor(part);
+    }
 
-                TimeRange time = timeRangeIterator.next();
-                if (event.getWhen().overlaps(time)) {
-                    timeRangeIterator.remove();
-                }
-            }
-        } 
-        return possibleTimes;
+    /** 
+     * Writes the merged busy times of attendeeIds on day to busy, which must be big enough, and
+     * returns how many there are.
+     */ 
+    private int collectBusyTimes(EventIndex index, RecurringEventIndex recurring, int day, 
+                                 int[] attendeeIds, long[] busy) {
+        int busyCount = index.busyTimesFor(attendeeIds, busy);
+        busyCount += recurring.busyTimesFor(attendeeIds, day, busy, busyCount);
+        busyCount += workingHours.busyTimesFor(attendeeIds, busy, busyCount);
+        Arrays.sort(busy, 0, busyCount);
+        return Intervals.merge(busy, busyCount);
     }
 
     /** 
-     * Filter eventsList and keep events which contain any of the requested attendees.
-     * Sort eventsList by start time with earliest appearing first. 
+     * Merges the busy times of a large group by splitting the attendees in halves until each part
+     * is small, merging each part on its own, and then combining the sorted results pairwise.
      */ 
-    private List<Event> filterAndSortEvents (List<Event> eventsList, Collection<String> attendees) {
-        List<Event> filteredSortedEvents = new ArrayList<>(eventsList);
+    private final class BusyTimesTask extends RecursiveTask<long[]> {
+        private final EventIndex index;
+        private final RecurringEventIndex recurring;
+        private final int day;
+        private final int[] attendeeIds;
+        private final int from;
+        private final int to;
 
-        // Remove events which are irrelevant to the request 
-        filteredSortedEvents.removeIf(e -> (
-            e.getWhen().duration() <= 0 || Collections.disjoint(e.getAttendees(), attendees)));
+        BusyTimesTask(EventIndex index, RecurringEventIndex recurring, int day, 
+                      int[] attendeeIds, int from, int to) {
+            this.index = index;
+            this.recurring = recurring;
+            this.day = day;
+            this.attendeeIds = attendeeIds;
+            this.from = from;
+            this.to = to;
+        }
 
-        // Sort events by start time 
-        Collections.sort(filteredSortedEvents, new Comparator<Event>() {
-            public int compare (Event e1, Event e2) {
-                return TimeRange.ORDER_BY_START.compare(e1.getWhen(), e2.getWhen());
+        @Override
+        protected long[] compute() {
+            int count = countBusyTimes(index, recurring, attendeeIds, from, to);
+            if (count < PARALLEL_LEAF_SIZE || to - from == 1) {
+                int[] part = Arrays.copyOfRange(attendeeIds, from, to);
+                long[] busy = new long[count];
+                return Arrays.copyOf(busy, collectBusyTimes(index, recurring, day, part, busy));
             }
-        });
 
-        return filteredSortedEvents;
+            int middle = (from + to) >>> 1;
+            BusyTimesTask left = new BusyTimesTask(index, recurring, day, attendeeIds, from, middle);
+            BusyTimesTask right = new BusyTimesTask(index, recurring, day, attendeeIds, middle, to);
+            left.fork();
+            long[] rightBusy = right.compute();
+            long[] leftBusy = left.join();
+
+            long[] merged = new long[leftBusy.length + rightBusy.length];
+            int mergedCount = Intervals.union(leftBusy, leftBusy.length, rightBusy, 
+                                              rightBusy.length, merged);
+            return Arrays.copyOf(merged, mergedCount);
+        }
     }
 
-}
+    private static long[] grow(long[] buffer, int size) {
+        return buffer.length >= size ? buffer : new long[Math.max(size, buffer.length * 2)];
+    }
 
+    /** 
+     * Buffers reused by every query made on the same thread, so that answering a query only 
+     * allocates the returned list of time ranges.
+     */ 
+    private static final class Scratch {
+        long[] busy = new long[64];
+        long[] free = new long[64];
+        long[] meeting = new long[64];
+    }
+}
@@ -0,0 +1,265 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operations on ranges of time packed into a single {@code long}, with the start in the high 32
+ * bits and the exclusive end in the low 32 bits. Working on {@code long[]} instead of lists of
+ * {@code TimeRange} lets the scheduler merge and compare ranges without creating an object per
+ * range. Times must not be negative, so that sorting packed ranges as plain numbers orders them by
+ * start and then by end.
+ *
+ * <p>The operations take an array and the number of ranges in use at the front of it, and write
+ * their result into an array supplied by the caller. They return how many ranges they wrote. This
+ * lets callers keep reusing the same buffers.
+ *
+ * <p>Like {@link TimeRange#overlaps(TimeRange)}, ranges that only touch do not overlap. Where an
+ * operation asks for merged ranges, it means sorted ranges of which no two overlap, such as the
+ * output of {@link #merge(long[], int)}.
+ */
+public final class Intervals {
+  private static final long END_MASK = 0xFFFFFFFFL;
+
+  private Intervals() {}
+
+  /**
+   * Packs the range from {@code start} to the exclusive {@code end}.
+   */
+  public static long of(int start, int end) {
+    return ((long) start << 32) | (end & END_MASK);
+  }
+
+  /**
+   * Packs the range covered by {@code range}.
+   */
+  public static long of(TimeRange range) {
+    return of(range.start(), range.end());
+  }
+
+  /**
+   * Returns the start of a packed range.
+   */
+  public static int start(long range) {
+    return (int) (range >>> 32);
+  }
+
+  /**
+   * Returns the exclusive end of a packed range.
+   */
+  public static int end(long range) {
+    return (int) range;
+  }
+
+  /**
+   * Returns the number of minutes in a packed range.
+   */
+  public static int length(long range) {
+    return end(range) - start(range);
+  }
+
+  /**
+   * Checks if two packed ranges overlap, using the same rules as {@link
+   * TimeRange#overlaps(TimeRange)}: an empty range overlaps a range that contains its start.
+   */
+  public static boolean overlaps(long a, long b) {
+    return contains(a, start(b)) || contains(b, start(a));
+  }
+
+  private static boolean contains(long range, int point) {
+    return start(range) <= point && point < end(range);
+  }
+
+  /**
+   * Merges overlapping ranges in place. The first {@code count} entries of {@code ranges} must be
+   * sorted, for example with {@link java.util.Arrays#sort(long[], int, int)}. Ranges that only
+   * touch are kept apart.
+   *
+   * @return The number of merged ranges now at the front of {@code ranges}.
+   */
+  public static int merge(long[] ranges, int count) {
+    if (count == 0) {
+      return 0;
+    }
+
+    int merged = 0;
+    int start = start(ranges[0]);
+    int end = end(ranges[0]);
+    for (int i = 1; i < count; i++) {
+      int nextStart = start(ranges[i]);
+      int nextEnd = end(ranges[i]);
+      if (nextStart < end) {
+        end = Math.max(end, nextEnd);
+      } else {
+        ranges[merged++] = of(start, end);
+        start = nextStart;
+        end = nextEnd;
+      }
+    }
+    ranges[merged++] = of(start, end);
+    return merged;
+  }
+
+  /**
+   * Writes the times that are in {@code a} or {@code b} to {@code out}, merged like {@link
+   * #merge(long[], int)}. Both inputs must be merged. {@code out} needs room for {@code aCount +
+   * bCount} ranges and must not be one of the inputs.
+   *
+   * @return The number of ranges written to {@code out}.
+   */
+  public static int union(long[] a, int aCount, long[] b, int bCount, long[] out) {
+    int written = 0;
+    int i = 0;
+    int j = 0;
+    while (i < aCount || j < bCount) {
+      // Take whichever range starts first, as a merge sort would.
+      long next = j == bCount || (i < aCount && a[i] <= b[j]) ? a[i++] : b[j++];
+      if (written > 0 && start(next) < end(out[written - 1])) {
+        int end = Math.max(end(out[written - 1]), end(next));
+        out[written - 1] = of(start(out[written - 1]), end);
+      } else {
+        out[written++] = next;
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Writes the times that are in both {@code a} and {@code b} to {@code out}. Both inputs must be
+   * merged. {@code out} needs room for {@code aCount + bCount} ranges and must not be one of the
+   * inputs.
+   *
+   * @return The number of ranges written to {@code out}.
+   */
+  public static int intersect(long[] a, int aCount, long[] b, int bCount, long[] out) {
+    int written = 0;
+    int i = 0;
+    int j = 0;
+    while (i < aCount && j < bCount) {
+      int start = Math.max(start(a[i]), start(b[j]));
+      int end = Math.min(end(a[i]), end(b[j]));
+      if (start < end) {
+        out[written++] = of(start, end);
+      }
+
+      // Whichever range ends first cannot overlap anything else in the other input.
+      if (end(a[i]) < end(b[j])) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Writes the times that are in {@code a} but not in {@code b} to {@code out}. Both inputs must
+   * be merged. {@code out} needs room for {@code aCount + bCount} ranges and must not be one of the
+   * inputs.
+   *
+   * @return The number of ranges written to {@code out}.
+   */
+  public static int subtract(long[] a, int aCount, long[] b, int bCount, long[] out) {
+    int written = 0;
+    int j = 0;
+    for (int i = 0; i < aCount; i++) {
+      int start = start(a[i]);
+      int end = end(a[i]);
+
+      // Ranges of b that end before this range starts cannot cut anything later in a either.
+      while (j < bCount && end(b[j]) <= start) {
+        j++;
+      }
+
+      int k = j;
+      while (k < bCount && start(b[k]) < end) {
+        if (start(b[k]) > start) {
+          out[written++] = of(start, start(b[k]));
+        }
+        start = Math.max(start, end(b[k]));
+        k++;
+      }
+      if (start < end) {
+        out[written++] = of(start, end);
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Writes the free times between {@code from} and {@code to} that are at least {@code minLength}
+   * minutes long to {@code out}, given the merged {@code busy} ranges. Touching busy ranges leave
+   * an empty gap between them, which is only kept when {@code minLength} is zero or less. {@code
+   * out} needs room for {@code busyCount + 1} ranges and may be {@code busy} itself.
+   *
+   * @return The number of ranges written to {@code out}.
+   */
+  public static int gaps(long[] busy, int busyCount, int from, int to, long minLength,
+      long[] out) {
+    int written = 0;
+    int start = from;
+    for (int i = 0; i < busyCount; i++) {
+      // Read the busy range before anything is written, in case out is the same array.
+      long range = busy[i];
+      int end = Math.min(start(range), to);
+      if (end >= start && end - start >= minLength) {
+        out[written++] = of(start, end);
+      }
+      start = Math.max(start, end(range));
+    }
+    if (to >= start && to - start >= minLength) {
+      out[written++] = of(start, to);
+    }
+    return written;
+  }
+
+  /**
+   * Writes the ranges of {@code ranges} that do not overlap any of the {@code busy} ranges to
+   * {@code out}. Unlike {@link #subtract}, ranges are kept or dropped as a whole. Both inputs must
+   * be sorted with no two ranges overlapping. {@code out} may be {@code ranges} itself.
+   *
+   * @return The number of ranges written to {@code out}.
+   */
+  public static int removeOverlapping(long[] ranges, int count, long[] busy, int busyCount,
+      long[] out) {
+    int written = 0;
+    int j = 0;
+    for (int i = 0; i < count; i++) {
+      long range = ranges[i];
+
+      // Busy ranges that end before this range starts cannot overlap any later range either.
+      while (j < busyCount && end(busy[j]) <= start(range)) {
+        j++;
+      }
+      if (j == busyCount || !overlaps(range, busy[j])) {
+        out[written++] = range;
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Converts the first {@code count} packed ranges to a list of {@code TimeRange}.
+   */
+  public static List<TimeRange> toTimeRanges(long[] ranges, int count) {
+    List<TimeRange> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      result.add(TimeRange.fromStartDuration(start(ranges[i]), length(ranges[i])));
+    }
+    return result;
+  }
+}
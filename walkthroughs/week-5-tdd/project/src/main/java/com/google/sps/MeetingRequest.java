@@ -30,9 +30,24 @@ public final class MeetingRequest {
   // The duration of the meeting in minutes.
   private final long duration;
 
+  // The ids of the attendees in the shared {@code AttendeeDictionary}, resolved on first use. They
+  // are resolved again only while some of the names have no id yet, since an event could give them
+  // one. Transient so that Gson neither reads nor writes them.
+  private transient volatile int[] attendeeIds;
+  private transient volatile int[] optionalAttendeeIds;
+
+  /**
+   * Used by Gson when reading a request from JSON. Going through a constructor makes sure that
+   * fields missing from the JSON (usually the optional attendees) are empty instead of null.
+   */
+  private MeetingRequest() {
+    this.duration = 0;
+  }
+
   public MeetingRequest(Collection<String> attendees, long duration) {
     this.duration = duration;
     this.attendees.addAll(attendees);
+    this.attendeeIds = AttendeeDictionary.getInstance().lookupAll(this.attendees);
   }
 
   /**
@@ -49,12 +64,38 @@ public final class MeetingRequest {
     return Collections.unmodifiableCollection(optional_attendees);
   }
 
+  /**
+   * Returns the sorted ids of the required attendees in the shared {@code AttendeeDictionary}.
+   * People who have no id yet are left out since no event can mention them.
+   */
+  int[] getAttendeeIds() {
+    int[] ids = attendeeIds;
+    if (ids == null || ids.length < attendees.size()) {
+      ids = AttendeeDictionary.getInstance().lookupAll(attendees);
+      attendeeIds = ids;
+    }
+    return ids;
+  }
+
+  /**
+   * Returns the sorted ids of the optional attendees in the shared {@code AttendeeDictionary}.
+   * People who have no id yet are left out since no event can mention them.
+   */
+  int[] getOptionalAttendeeIds() {
+    int[] ids = optionalAttendeeIds;
+    if (ids == null || ids.length < optional_attendees.size()) {
+      ids = AttendeeDictionary.getInstance().lookupAll(optional_attendees);
+      optionalAttendeeIds = ids;
+    }
+    return ids;
+  }
+
   /**
    * Adds one optional attendee for the meeting.
    */
   public void addOptionalAttendee(String attendee) {
-    if (!attendees.contains(attendee)) {
-      optional_attendees.add(attendee);
+    if (!attendees.contains(attendee) && optional_attendees.add(attendee)) {
+      optionalAttendeeIds = null;
     }
   }
 
@@ -0,0 +1,203 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache of {@link FindMeetingQuery} answers. Requests with the same attendees, optional
+ * attendees and duration share an entry no matter in which order the attendees were given. When the
+ * cache is full, the entry that was used least recently is evicted.
+ *
+ * <p>Every entry remembers the version of the {@link EventIndex} it was computed from. An entry is
+ * only used while none of its attendees' events have changed since, so a change to one person's
+ * calendar only invalidates the answers that involve that person.
+ */
+public final class QueryCache {
+  private static final int DEFAULT_CAPACITY = 10_000;
+
+  private static final QueryCache INSTANCE = new QueryCache(DEFAULT_CAPACITY);
+
+  private final FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+  private final Map<List<Object>, Entry> entries;
+
+  // Guarded by the lock on this cache, like {@code entries}.
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long invalidations = 0;
+
+  /**
+   * Creates a cache holding at most {@code capacity} answers.
+   */
+  public QueryCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+
+    // An access-ordered map keeps the least recently used entry first.
+    this.entries = new LinkedHashMap<List<Object>, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<List<Object>, Entry> eldest) {
+        if (size() > capacity) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the cache used by the servlets.
+   */
+  public static QueryCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the same answer as {@link FindMeetingQuery#query(EventIndex, MeetingRequest)}, reusing
+   * an earlier answer if none of the request's attendees have had their events changed since. The
+   * returned collection is read-only since it may be shared with other callers.
+   */
+  public Collection<TimeRange> query(EventIndex index, MeetingRequest request) {
+    List<Object> key = keyOf(request);
+    int[] attendeeIds = attendeeIdsOf(request);
+    long version = index.versionOf(attendeeIds);
+
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.version >= version) {
+        hits++;
+        return entry.answer;
+      }
+
+      misses++;
+      if (entry != null) {
+        invalidations++;
+      }
+    }
+
+    // Compute outside of the lock so that slow queries don't hold up everyone else.
+    Collection<TimeRange> answer =
+        Collections.unmodifiableList(new ArrayList<>(findMeetingQuery.query(index, request)));
+
+    synchronized (this) {
+      // Another thread may have stored an answer from a newer index in the meantime.
+      Entry current = entries.get(key);
+      if (current == null || current.version < version) {
+        entries.put(key, new Entry(version, answer));
+      }
+    }
+    return answer;
+  }
+
+  /**
+   * Returns a snapshot of how well the cache is doing.
+   */
+  public synchronized Stats getStats() {
+    return new Stats(entries.size(), hits, misses, evictions, invalidations);
+  }
+
+  /**
+   * Turns a request into a key that is the same for every equivalent request. The attendees are
+   * sorted so that their order doesn't matter.
+   */
+  private static List<Object> keyOf(MeetingRequest request) {
+    return Arrays.asList(request.getDuration(), sorted(request.getAttendees()),
+        sorted(request.getOptionalAttendees()));
+  }
+
+  private static List<String> sorted(Collection<String> names) {
+    List<String> result = new ArrayList<>(names);
+    Collections.sort(result);
+    return result;
+  }
+
+  private static int[] attendeeIdsOf(MeetingRequest request) {
+    int[] required = request.getAttendeeIds();
+    int[] optional = request.getOptionalAttendeeIds();
+    int[] all = Arrays.copyOf(required, required.length + optional.length);
+    System.arraycopy(optional, 0, all, required.length, optional.length);
+    return all;
+  }
+
+  private static final class Entry {
+    private final long version;
+    private final Collection<TimeRange> answer;
+
+    private Entry(long version, Collection<TimeRange> answer) {
+      this.version = version;
+      this.answer = answer;
+    }
+  }
+
+  /**
+   * Counters describing the cache since it was created.
+   */
+  public static final class Stats {
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final double hitRate;
+
+    private Stats(int size, long hits, long misses, long evictions, long invalidations) {
+      this.size = size;
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.invalidations = invalidations;
+      this.hitRate = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /** Returns the number of answers currently cached. */
+    public int getSize() {
+      return size;
+    }
+
+    /** Returns the number of requests answered from the cache. */
+    public long getHits() {
+      return hits;
+    }
+
+    /** Returns the number of requests that had to be computed. */
+    public long getMisses() {
+      return misses;
+    }
+
+    /** Returns the number of answers dropped to make room for newer ones. */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /** Returns the number of cached answers that could not be used because events changed. */
+    public long getInvalidations() {
+      return invalidations;
+    }
+
+    /** Returns the fraction of requests answered from the cache, or 0 if there were none. */
+    public double getHitRate() {
+      return hitRate;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Comparator;
+
+/**
+ * A suggested meeting time together with how good a choice it is. Scores go from 0 to 1, with
+ * higher being better.
+ */
+public final class RankedSlot {
+  /**
+   * A comparator that puts better slots first: higher scores first, and earlier slots first among
+   * equal scores.
+   */
+  public static final Comparator<RankedSlot> ORDER_BY_RANK = new Comparator<RankedSlot>() {
+    @Override
+    public int compare(RankedSlot a, RankedSlot b) {
+      int byScore = Double.compare(b.score, a.score);
+      return byScore != 0 ? byScore : TimeRange.ORDER_BY_START.compare(a.when, b.when);
+    }
+  };
+
+  private final TimeRange when;
+  private final double score;
+  private final int optionalConflicts;
+
+  public RankedSlot(TimeRange when, double score, int optionalConflicts) {
+    if (when == null) {
+      throw new IllegalArgumentException("when cannot be null");
+    }
+
+    this.when = when;
+    this.score = score;
+    this.optionalConflicts = optionalConflicts;
+  }
+
+  /**
+   * Returns the time of the suggested meeting.
+   */
+  public TimeRange getWhen() {
+    return when;
+  }
+
+  /**
+   * Returns how good the slot is, from 0 to 1.
+   */
+  public double getScore() {
+    return score;
+  }
+
+  /**
+   * Returns how many optional attendees are busy during the slot.
+   */
+  public int getOptionalConflicts() {
+    return optionalConflicts;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s score %.3f, %d optional conflicts", when, score, optionalConflicts);
+  }
+}
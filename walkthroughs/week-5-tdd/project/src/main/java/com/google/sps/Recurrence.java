@@ -0,0 +1,148 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A rule saying on which days a recurring event takes place: every {@code interval} days starting
+ * on a first day, optionally up to a last day and skipping some days. Days are counted from an
+ * arbitrary day 0, so day 7 is a week after day 0.
+ *
+ * <p>Occurrences are worked out on demand from the rule, so a series costs the same amount of
+ * memory whether it runs for a week or forever. Rules are read-only; methods such as {@link
+ * #until(int)} return a new rule.
+ */
+public final class Recurrence {
+  private static final int[] NO_DAYS = new int[0];
+
+  private final int firstDay;
+  private final int interval;
+  private final int lastDay;
+
+  // Sorted and free of duplicates, so that checking a day is a binary search.
+  private final int[] exceptions;
+
+  private Recurrence(int firstDay, int interval, int lastDay, int[] exceptions) {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("interval must be positive");
+    }
+    this.firstDay = firstDay;
+    this.interval = interval;
+    this.lastDay = lastDay;
+    this.exceptions = exceptions;
+  }
+
+  /**
+   * Creates a rule for every day starting on {@code firstDay}.
+   */
+  public static Recurrence daily(int firstDay) {
+    return every(1, firstDay);
+  }
+
+  /**
+   * Creates a rule for every seventh day starting on {@code firstDay}.
+   */
+  public static Recurrence weekly(int firstDay) {
+    return every(7, firstDay);
+  }
+
+  /**
+   * Creates a rule for every {@code interval} days starting on {@code firstDay}, without end.
+   */
+  public static Recurrence every(int interval, int firstDay) {
+    return new Recurrence(firstDay, interval, Integer.MAX_VALUE, NO_DAYS);
+  }
+
+  /**
+   * Returns a copy of this rule that stops after {@code lastDay}.
+   */
+  public Recurrence until(int lastDay) {
+    return new Recurrence(firstDay, interval, lastDay, exceptions);
+  }
+
+  /**
+   * Returns a copy of this rule that also skips {@code days}.
+   */
+  public Recurrence except(int... days) {
+    int[] merged = Arrays.copyOf(exceptions, exceptions.length + days.length);
+    System.arraycopy(days, 0, merged, exceptions.length, days.length);
+    Arrays.sort(merged);
+
+    int unique = 0;
+    for (int i = 0; i < merged.length; i++) {
+      if (unique == 0 || merged[unique - 1] != merged[i]) {
+        merged[unique++] = merged[i];
+      }
+    }
+    return new Recurrence(firstDay, interval, lastDay, Arrays.copyOf(merged, unique));
+  }
+
+  /**
+   * Returns the first day the rule could take place.
+   */
+  public int getFirstDay() {
+    return firstDay;
+  }
+
+  /**
+   * Checks if the rule takes place on {@code day}. This takes constant time apart from a binary
+   * search through the skipped days.
+   */
+  public boolean occursOn(int day) {
+    return day >= firstDay && day <= lastDay && (day - firstDay) % interval == 0
+        && Arrays.binarySearch(exceptions, day) < 0;
+  }
+
+  /**
+   * Returns the days from {@code fromDay} to {@code toDay}, both included, on which the rule takes
+   * place, in order. The days are worked out one at a time as the iterator is advanced.
+   */
+  public PrimitiveIterator.OfInt occurrences(int fromDay, int toDay) {
+    return new PrimitiveIterator.OfInt() {
+      private long next = firstOnOrAfter(fromDay);
+
+      @Override
+      public boolean hasNext() {
+        while (next <= Math.min(toDay, lastDay)
+            && Arrays.binarySearch(exceptions, (int) next) >= 0) {
+          next += interval;
+        }
+        return next <= Math.min(toDay, lastDay);
+      }
+
+      @Override
+      public int nextInt() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int day = (int) next;
+        next += interval;
+        return day;
+      }
+    };
+  }
+
+  // Uses a long so that stepping past the last int day cannot wrap around.
+  private long firstOnOrAfter(int day) {
+    if (day <= firstDay) {
+      return firstDay;
+    }
+    long steps = ((long) day - firstDay + interval - 1) / interval;
+    return firstDay + steps * interval;
+  }
+}
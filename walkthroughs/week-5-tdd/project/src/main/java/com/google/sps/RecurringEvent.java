@@ -0,0 +1,114 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An event that repeats on the days given by a {@link Recurrence}, always at the same time of day
+ * and with the same attendees. Only the rule is stored; occurrences are not created as events.
+ */
+public final class RecurringEvent {
+  private final String title;
+  private final TimeRange when;
+  private final Recurrence recurrence;
+
+  // Sorted ids from the shared {@code AttendeeDictionary}, like in {@code Event}.
+  private final int[] attendeeIds;
+
+  /**
+   * Creates a new recurring event.
+   *
+   * @param title The human-readable name for the event. Must be non-null.
+   * @param when The time of day when each occurrence takes place. Must be non-null.
+   * @param recurrence The days on which the event takes place. Must be non-null.
+   * @param attendees The collection of people attending the event. Must be non-null.
+   */
+  public RecurringEvent(String title, TimeRange when, Recurrence recurrence,
+      Collection<String> attendees) {
+    if (title == null) {
+      throw new IllegalArgumentException("title cannot be null");
+    }
+
+    if (when == null) {
+      throw new IllegalArgumentException("when cannot be null");
+    }
+
+    if (recurrence == null) {
+      throw new IllegalArgumentException("recurrence cannot be null");
+    }
+
+    if (attendees == null) {
+      throw new IllegalArgumentException("attendees cannot be null. Use empty array instead.");
+    }
+
+    this.title = title;
+    this.when = when;
+    this.recurrence = recurrence;
+    this.attendeeIds = AttendeeDictionary.getInstance().idsOf(attendees);
+  }
+
+  /**
+   * Returns the human-readable name for this event.
+   */
+  public String getTitle() {
+    return title;
+  }
+
+  /**
+   * Returns the time of day when each occurrence takes place.
+   */
+  public TimeRange getWhen() {
+    return when;
+  }
+
+  /**
+   * Returns the rule for the days on which this event takes place.
+   */
+  public Recurrence getRecurrence() {
+    return recurrence;
+  }
+
+  /**
+   * Returns a read-only set of required attendees for this event.
+   */
+  public Set<String> getAttendees() {
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    Set<String> attendees = new HashSet<>();
+    for (int id : attendeeIds) {
+      attendees.add(dictionary.nameOf(id));
+    }
+    return Collections.unmodifiableSet(attendees);
+  }
+
+  /**
+   * Returns the occurrence on {@code day} as a one-off event, or null if the event does not take
+   * place that day.
+   */
+  public Event occurrenceOn(int day) {
+    return recurrence.occursOn(day) ? new Event(title, when, getAttendees()) : null;
+  }
+
+  /**
+   * Returns the sorted ids of the attendees in the shared {@code AttendeeDictionary}. The array is
+   * not copied, so callers must not change it.
+   */
+  int[] getAttendeeIds() {
+    return attendeeIds;
+  }
+}
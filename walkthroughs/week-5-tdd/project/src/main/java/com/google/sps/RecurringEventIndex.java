@@ -0,0 +1,137 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A read-only index of recurring events grouped by attendee, so that a query only checks the
+ * series of the people it asks about. Finding what happens on a day asks each of those series
+ * whether it takes place that day, which costs the same for tomorrow as for ten years from now.
+ */
+public final class RecurringEventIndex {
+  private static final RecurringEvent[] NO_EVENTS = new RecurringEvent[0];
+
+  /** An index without any recurring events. */
+  public static final RecurringEventIndex EMPTY =
+      new RecurringEventIndex(new ArrayList<RecurringEvent>());
+
+  // Indexed by attendee id. Attendees past the end of the array or with a null entry have no
+  // recurring events.
+  private final RecurringEvent[][] eventsByAttendee;
+
+  /**
+   * Creates an index over {@code events}. Events that take no time are left out since nobody is
+   * busy during them.
+   *
+   * @param events The events to index. Must be non-null.
+   */
+  public RecurringEventIndex(Collection<RecurringEvent> events) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null");
+    }
+
+    List<List<RecurringEvent>> grouped = new ArrayList<>();
+    for (RecurringEvent event : events) {
+      if (event.getWhen().duration() <= 0) {
+        continue;
+      }
+      for (int attendee : event.getAttendeeIds()) {
+        while (grouped.size() <= attendee) {
+          grouped.add(null);
+        }
+        if (grouped.get(attendee) == null) {
+          grouped.set(attendee, new ArrayList<>());
+        }
+        grouped.get(attendee).add(event);
+      }
+    }
+
+    eventsByAttendee = new RecurringEvent[grouped.size()][];
+    for (int attendee = 0; attendee < grouped.size(); attendee++) {
+      if (grouped.get(attendee) != null) {
+        eventsByAttendee[attendee] = grouped.get(attendee).toArray(NO_EVENTS);
+      }
+    }
+  }
+
+  /**
+   * Returns the occurrences on {@code day} of the recurring events that at least one of {@code
+   * attendees} is attending, as one-off events sorted by start time. Each event appears once even
+   * if several of the attendees share it.
+   */
+  public List<Event> occurrencesOn(int day, Collection<String> attendees) {
+    int[] attendeeIds = AttendeeDictionary.getInstance().lookupAll(attendees);
+    Set<RecurringEvent> found = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int attendee : attendeeIds) {
+      for (RecurringEvent event : eventsOf(attendee)) {
+        if (event.getRecurrence().occursOn(day)) {
+          found.add(event);
+        }
+      }
+    }
+
+    List<Event> result = new ArrayList<>();
+    for (RecurringEvent event : found) {
+      result.add(event.occurrenceOn(day));
+    }
+    result.sort(EventIndex.ORDER_BY_START);
+    return result;
+  }
+
+  /**
+   * Returns an upper bound on how many entries {@link #busyTimesFor(int[], int, long[], int)} writes
+   * for {@code attendeeIds} on any day.
+   */
+  int countBusyTimesFor(int[] attendeeIds) {
+    int count = 0;
+    for (int attendee : attendeeIds) {
+      count += eventsOf(attendee).length;
+    }
+    return count;
+  }
+
+  /**
+   * Writes the times of the occurrences on {@code day} of the recurring events of {@code
+   * attendeeIds} to {@code out} as packed {@link Intervals}, in no particular order, starting at
+   * {@code offset}. Like {@link EventIndex#busyTimesFor(int[], long[])}, this creates no objects.
+   *
+   * @return The number of ranges written.
+   */
+  int busyTimesFor(int[] attendeeIds, int day, long[] out, int offset) {
+    int written = 0;
+    for (int attendee : attendeeIds) {
+      for (RecurringEvent event : eventsOf(attendee)) {
+        if (event.getRecurrence().occursOn(day)) {
+          out[offset + written++] = Intervals.of(event.getWhen());
+        }
+      }
+    }
+    return written;
+  }
+
+  private RecurringEvent[] eventsOf(int attendee) {
+    if (attendee < 0 || attendee >= eventsByAttendee.length) {
+      return NO_EVENTS;
+    }
+    RecurringEvent[] attendeeEvents = eventsByAttendee[attendee];
+    return attendeeEvents == null ? NO_EVENTS : attendeeEvents;
+  }
+}
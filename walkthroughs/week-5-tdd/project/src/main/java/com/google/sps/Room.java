@@ -0,0 +1,100 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Comparator;
+
+/**
+ * A room that meetings can be held in. A room is booked the same way a person is invited: by
+ * listing its name among the attendees of an event. Its name should therefore not be the name of
+ * a person.
+ */
+public final class Room {
+  /**
+   * A comparator for sorting rooms by capacity in ascending order, then by name.
+   */
+  public static final Comparator<Room> ORDER_BY_CAPACITY = new Comparator<Room>() {
+    @Override
+    public int compare(Room a, Room b) {
+      int byCapacity = Integer.compare(a.capacity, b.capacity);
+      return byCapacity != 0 ? byCapacity : a.name.compareTo(b.name);
+    }
+  };
+
+  private final String name;
+  private final int capacity;
+
+  // The room's id in the shared {@code AttendeeDictionary}, as a one-element array so that it can
+  // be passed to the index like the attendees of a request. Transient so that Gson leaves it out.
+  private final transient int[] attendeeIds;
+
+  /**
+   * Creates a new room.
+   *
+   * @param name The name of the room, as used in the attendees of events. Must be non-null.
+   * @param capacity The number of people the room can seat. Must not be negative.
+   */
+  public Room(String name, int capacity) {
+    if (name == null) {
+      throw new IllegalArgumentException("name cannot be null");
+    }
+
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity cannot be negative");
+    }
+
+    this.name = name;
+    this.capacity = capacity;
+    this.attendeeIds = new int[] {AttendeeDictionary.getInstance().idOf(name)};
+  }
+
+  /**
+   * Returns the name of the room.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the number of people the room can seat.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the room's id in the shared {@code AttendeeDictionary} as a sorted array of ids. The
+   * array is not copied, so callers must not change it.
+   */
+  int[] getAttendeeIds() {
+    return attendeeIds;
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof Room && name.equals(((Room) other).name)
+        && capacity == ((Room) other).capacity;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s (%d)", name, capacity);
+  }
+}
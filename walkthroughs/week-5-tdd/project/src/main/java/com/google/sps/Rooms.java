@@ -0,0 +1,25 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+public final class Rooms {
+  public static final Room[] rooms = {
+      new Room("Room: Phone Booth", 2),
+      new Room("Room: Huddle", 4),
+      new Room("Room: Maple", 8),
+      new Room("Room: Oak", 12),
+      new Room("Room: Auditorium", 100),
+  };
+}
@@ -0,0 +1,169 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Scores candidate meeting times and keeps the best few. Candidates are placed at the start of each
+ * free window, every {@code step} minutes after that, and at the end of the window. Each candidate
+ * is scored on:
+ *
+ * <ul>
+ *   <li>how many optional attendees can make it,
+ *   <li>how much of it falls within the preferred hours,
+ *   <li>how early in the day it is, and
+ *   <li>whether it leaves attendees with gaps too short to be useful before or after it.
+ * </ul>
+ *
+ * <p>Only the best {@code k} candidates are kept while scoring, in a heap, so that ranking costs
+ * O(n log k) for n candidates instead of sorting all of them.
+ */
+public final class SlotRanker {
+  // Gaps shorter than this before or after a meeting are too short to get anything done in.
+  private static final int MIN_USEFUL_GAP = 30;
+
+  private static final double ATTENDANCE_WEIGHT = 3;
+  private static final double PREFERRED_WEIGHT = 2;
+  private static final double EARLINESS_WEIGHT = 1;
+  private static final double COMPACTNESS_WEIGHT = 1;
+  private static final double TOTAL_WEIGHT =
+      ATTENDANCE_WEIGHT + PREFERRED_WEIGHT + EARLINESS_WEIGHT + COMPACTNESS_WEIGHT;
+
+  /** Prefers office hours from 9:00 to 17:00 and places candidates every half hour. */
+  public static final SlotRanker DEFAULT = new SlotRanker(TimeRange.fromStartEnd(
+      TimeRange.getTimeInMinutes(9, 0), TimeRange.getTimeInMinutes(17, 0), false), 30);
+
+  private final TimeRange preferredHours;
+  private final int step;
+
+  /**
+   * Creates a new ranker.
+   *
+   * @param preferredHours The time of day meetings should preferably take place in. Must be
+   *     non-null.
+   * @param step The number of minutes between candidates in the same free window. Must be
+   *     positive.
+   */
+  public SlotRanker(TimeRange preferredHours, int step) {
+    if (preferredHours == null) {
+      throw new IllegalArgumentException("preferredHours cannot be null");
+    }
+
+    if (step <= 0) {
+      throw new IllegalArgumentException("step must be positive");
+    }
+
+    this.preferredHours = preferredHours;
+    this.step = step;
+  }
+
+  /**
+   * Returns the {@code k} best meetings of {@code duration} minutes that fit in the {@code free}
+   * windows, best first.
+   *
+   * @param free The windows in which the required attendees are free, as sorted packed {@link
+   *     Intervals}.
+   * @param optionalBusy For each optional attendee, the merged packed times they are busy.
+   */
+  List<RankedSlot> topK(long[] free, int freeCount, long[][] optionalBusy, long duration, int k) {
+    // The worst of the best k so far is at the head, ready to be replaced by something better. The
+    // heap never holds more than there are candidates, however large k is.
+    int capacity = (int) Math.max(1, Math.min(k, countCandidates(free, freeCount, duration)));
+    PriorityQueue<RankedSlot> best =
+        new PriorityQueue<>(capacity, RankedSlot.ORDER_BY_RANK.reversed());
+
+    // Candidates come in order of start time, so each optional attendee's busy times only need to
+    // be walked once.
+    int[] positions = new int[optionalBusy.length];
+    for (int i = 0; i < freeCount; i++) {
+      int windowStart = Intervals.start(free[i]);
+      int windowEnd = Intervals.end(free[i]);
+      int lastStart = (int) (windowEnd - duration);
+      for (int start = windowStart; start <= lastStart; start += step) {
+        offer(best, k, score(start, windowStart, windowEnd, optionalBusy, positions, duration));
+      }
+      if (lastStart >= windowStart && (lastStart - windowStart) % step != 0) {
+        offer(best, k, score(lastStart, windowStart, windowEnd, optionalBusy, positions, duration));
+      }
+    }
+
+    List<RankedSlot> result = new ArrayList<>(best);
+    result.sort(RankedSlot.ORDER_BY_RANK);
+    return result;
+  }
+
+  private long countCandidates(long[] free, int freeCount, long duration) {
+    long count = 0;
+    for (int i = 0; i < freeCount; i++) {
+      long room = Intervals.end(free[i]) - duration - Intervals.start(free[i]);
+      if (room >= 0) {
+        count += room / step + (room % step == 0 ? 1 : 2);
+      }
+    }
+    return count;
+  }
+
+  private static void offer(PriorityQueue<RankedSlot> best, int k, RankedSlot slot) {
+    if (best.size() < k) {
+      best.add(slot);
+    } else if (RankedSlot.ORDER_BY_RANK.compare(slot, best.peek()) < 0) {
+      best.poll();
+      best.add(slot);
+    }
+  }
+
+  private RankedSlot score(int start, int windowStart, int windowEnd, long[][] optionalBusy,
+      int[] positions, long duration) {
+    int end = (int) (start + duration);
+    long slot = Intervals.of(start, end);
+
+    int conflicts = 0;
+    for (int j = 0; j < optionalBusy.length; j++) {
+      long[] busy = optionalBusy[j];
+      while (positions[j] < busy.length && Intervals.end(busy[positions[j]]) <= start) {
+        positions[j]++;
+      }
+      if (positions[j] < busy.length && Intervals.overlaps(slot, busy[positions[j]])) {
+        conflicts++;
+      }
+    }
+    double attendance =
+        optionalBusy.length == 0 ? 1 : 1 - (double) conflicts / optionalBusy.length;
+
+    double preferred;
+    if (duration > 0) {
+      int inside = Math.min(end, preferredHours.end()) - Math.max(start, preferredHours.start());
+      preferred = Math.max(inside, 0) / (double) duration;
+    } else {
+      preferred = preferredHours.contains(start) ? 1 : 0;
+    }
+
+    double earliness = 1 - start / (double) TimeRange.WHOLE_DAY.duration();
+
+    double compactness = (isUsefulGap(start - windowStart) ? 0.5 : 0)
+        + (isUsefulGap(windowEnd - end) ? 0.5 : 0);
+
+    double score = (ATTENDANCE_WEIGHT * attendance + PREFERRED_WEIGHT * preferred
+        + EARLINESS_WEIGHT * earliness + COMPACTNESS_WEIGHT * compactness) / TOTAL_WEIGHT;
+    return new RankedSlot(TimeRange.fromStartDuration(start, (int) duration), score, conflicts);
+  }
+
+  private static boolean isUsefulGap(int minutes) {
+    return minutes == 0 || minutes >= MIN_USEFUL_GAP;
+  }
+}
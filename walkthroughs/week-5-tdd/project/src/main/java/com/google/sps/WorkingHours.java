@@ -0,0 +1,110 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+/**
+ * The hours during which someone is willing to meet, in their own time zone. The hours may run
+ * past midnight, such as 22:00 to 06:00 for a night shift. Equal start and end times mean the
+ * person can meet at any time of day.
+ */
+public final class WorkingHours {
+  private final ZoneId zone;
+  private final LocalTime start;
+  private final LocalTime end;
+
+  /**
+   * Creates new working hours.
+   *
+   * @param zone The time zone the hours are given in. Must be non-null.
+   * @param start The local time at which the working day starts. Must be non-null.
+   * @param end The local time at which the working day ends. Must be non-null.
+   */
+  public WorkingHours(ZoneId zone, LocalTime start, LocalTime end) {
+    if (zone == null) {
+      throw new IllegalArgumentException("zone cannot be null");
+    }
+
+    if (start == null || end == null) {
+      throw new IllegalArgumentException("start and end cannot be null");
+    }
+
+    this.zone = zone;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Returns the time zone the hours are given in.
+   */
+  public ZoneId getZone() {
+    return zone;
+  }
+
+  /**
+   * Returns the local time at which the working day starts.
+   */
+  public LocalTime getStart() {
+    return start;
+  }
+
+  /**
+   * Returns the local time at which the working day ends.
+   */
+  public LocalTime getEnd() {
+    return end;
+  }
+
+  /**
+   * Returns the times outside of these hours on {@code date} in {@code calendarZone}, in minutes
+   * since midnight of that day, as merged packed {@link Intervals}. Daylight saving time is taken
+   * into account for both zones.
+   */
+  long[] blockedTimesOn(LocalDate date, ZoneId calendarZone) {
+    if (start.equals(end)) {
+      return new long[0];
+    }
+
+    // The working days that start the day before and the day after can reach into the calendar
+    // day once the zones are shifted against each other.
+    ZonedDateTime midnight = date.atStartOfDay(calendarZone);
+    int dayEnd = TimeRange.WHOLE_DAY.end();
+    long[] working = new long[3];
+    int count = 0;
+    for (int offset = -1; offset <= 1; offset++) {
+      LocalDate localDate = date.plusDays(offset);
+      LocalDate endDate = end.isAfter(start) ? localDate : localDate.plusDays(1);
+      long from = Duration.between(midnight, localDate.atTime(start).atZone(zone)).toMinutes();
+      long to = Duration.between(midnight, endDate.atTime(end).atZone(zone)).toMinutes();
+
+      from = Math.max(from, 0);
+      to = Math.min(to, dayEnd);
+      if (from < to) {
+        working[count++] = Intervals.of((int) from, (int) to);
+      }
+    }
+
+    Arrays.sort(working, 0, count);
+    count = Intervals.merge(working, count);
+    long[] blocked = new long[count + 1];
+    return Arrays.copyOf(blocked, Intervals.gaps(working, count, 0, dayEnd, 1, blocked));
+  }
+}
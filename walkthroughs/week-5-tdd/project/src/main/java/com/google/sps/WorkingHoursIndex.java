@@ -0,0 +1,100 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A read-only index of the times each attendee is outside of their {@link WorkingHours} on one
+ * calendar day. The times are worked out once when the index is built, so taking working hours
+ * into account only costs a query a few extra busy intervals per attendee.
+ */
+public final class WorkingHoursIndex {
+  private static final long[] NO_TIMES = new long[0];
+
+  /** An index in which everyone can meet at any time of day. */
+  public static final WorkingHoursIndex EMPTY = new WorkingHoursIndex(
+      Collections.<String, WorkingHours>emptyMap(), LocalDate.MIN, ZoneId.of("UTC"));
+
+  // Indexed by attendee id, as merged packed intervals. Attendees past the end of the array or
+  // with a null entry can meet at any time.
+  private final long[][] blockedByAttendee;
+
+  /**
+   * Creates an index of the working hours of the attendees in {@code hours}.
+   *
+   * @param hours The working hours keyed by attendee. Must be non-null.
+   * @param date The date of the calendar day that queries are about. Must be non-null.
+   * @param calendarZone The time zone in which the calendar's minutes are counted. Must be
+   *     non-null.
+   */
+  public WorkingHoursIndex(Map<String, WorkingHours> hours, LocalDate date, ZoneId calendarZone) {
+    if (hours == null || date == null || calendarZone == null) {
+      throw new IllegalArgumentException("hours, date and calendarZone cannot be null");
+    }
+
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    int size = 0;
+    for (String attendee : hours.keySet()) {
+      size = Math.max(size, dictionary.idOf(attendee) + 1);
+    }
+
+    blockedByAttendee = new long[size][];
+    for (Map.Entry<String, WorkingHours> entry : hours.entrySet()) {
+      blockedByAttendee[dictionary.idOf(entry.getKey())] =
+          entry.getValue().blockedTimesOn(date, calendarZone);
+    }
+  }
+
+  /**
+   * Returns how many entries {@link #busyTimesFor(int[], long[], int)} writes for {@code
+   * attendeeIds}.
+   */
+  int countBusyTimesFor(int[] attendeeIds) {
+    int count = 0;
+    for (int attendee : attendeeIds) {
+      count += blockedOf(attendee).length;
+    }
+    return count;
+  }
+
+  /**
+   * Writes the times outside of the working hours of {@code attendeeIds} to {@code out} as packed
+   * {@link Intervals}, starting at {@code offset}. Like {@link EventIndex#busyTimesFor(int[],
+   * long[])}, this creates no objects.
+   *
+   * @return The number of ranges written.
+   */
+  int busyTimesFor(int[] attendeeIds, long[] out, int offset) {
+    int written = 0;
+    for (int attendee : attendeeIds) {
+      long[] blocked = blockedOf(attendee);
+      System.arraycopy(blocked, 0, out, offset + written, blocked.length);
+      written += blocked.length;
+    }
+    return written;
+  }
+
+  private long[] blockedOf(int attendee) {
+    if (attendee < 0 || attendee >= blockedByAttendee.length) {
+      return NO_TIMES;
+    }
+    long[] blocked = blockedByAttendee[attendee];
+    return blocked == null ? NO_TIMES : blocked;
+  }
+}
@@ -0,0 +1,82 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.BatchSchedule;
+import com.google.sps.BatchScheduler;
+import com.google.sps.EventStore;
+import com.google.sps.MeetingRequest;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that places a JSON array of meeting requests so that none of them clash. The answer has
+ * the time of each meeting in the order of the requests, or null for meetings that did not fit.
+ * The search runs for at most {@code budget} milliseconds, 2000 by default. A batch can hold at
+ * most {@link BatchScheduler#MAX_BATCH_SIZE} meetings, each at most a day long.
+ */
+@WebServlet("/schedule-batch")
+public class BatchScheduleServlet extends HttpServlet {
+  private static final long DEFAULT_BUDGET_MILLIS = 2000;
+
+  // Keeps one call from holding a request thread for too long.
+  private static final long MAX_BUDGET_MILLIS = 30_000;
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    long budget;
+    try {
+      String parameter = request.getParameter("budget");
+      budget = parameter == null ? DEFAULT_BUDGET_MILLIS : Long.parseLong(parameter);
+    } catch (NumberFormatException e) {
+      budget = 0;
+    }
+    if (budget <= 0 || budget > MAX_BUDGET_MILLIS) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+          "budget must be between 1 and " + MAX_BUDGET_MILLIS + " milliseconds.");
+      return;
+    }
+
+    // Read the JSON array as instances of MeetingRequest.
+    List<MeetingRequest> meetingRequests;
+    try {
+      meetingRequests = QueryJson.readRequests(new JsonReader(request.getReader()));
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    // Place every meeting against the same snapshot of the events.
+    BatchSchedule schedule;
+    try {
+      schedule = new BatchScheduler()
+          .schedule(EventStore.getInstance().getIndex(), meetingRequests, budget);
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    // Send the schedule back as JSON
+    response.setContentType("application/json");
+    response.getWriter().println(new Gson().toJson(schedule));
+  }
+}
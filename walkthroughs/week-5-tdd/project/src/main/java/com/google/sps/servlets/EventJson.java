@@ -0,0 +1,97 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.sps.Event;
+import com.google.sps.TimeRange;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts events to and from the JSON used by the event servlets. An event looks like
+ * {@code {"id": 3, "title": "Lunch", "when": {"start": 720, "duration": 60}, "attendees": [...]}},
+ * where the id is only present in responses.
+ */
+final class EventJson {
+  private static final Gson gson = new Gson();
+
+  private EventJson() {
+    // Disallow instances.
+  }
+
+  /**
+   * Reads one event from {@code reader}. The event is built through its constructor so that the
+   * usual checks apply.
+   *
+   * @throws JsonParseException if the JSON is malformed or a field is missing.
+   */
+  static Event read(Reader reader) {
+    JsonObject json = gson.fromJson(reader, JsonObject.class);
+    if (json == null) {
+      throw new JsonParseException("Expected an event.");
+    }
+
+    try {
+      String title = json.get("title").getAsString();
+      JsonObject when = json.getAsJsonObject("when");
+      TimeRange time = TimeRange.fromStartDuration(
+          when.get("start").getAsInt(), when.get("duration").getAsInt());
+      List<String> attendees = new ArrayList<>();
+      for (JsonElement attendee : json.getAsJsonArray("attendees")) {
+        attendees.add(attendee.getAsString());
+      }
+      return new Event(title, time, attendees);
+    } catch (NullPointerException | ClassCastException | IllegalStateException e) {
+      throw new JsonParseException(
+          "Event must have a title, a start, a duration and attendees.", e);
+    }
+  }
+
+  /**
+   * Converts the events to a JSON array, adding each event's id to it.
+   */
+  static JsonArray toJson(Map<Long, Event> events) {
+    JsonArray json = new JsonArray();
+    for (Map.Entry<Long, Event> entry : events.entrySet()) {
+      json.add(toJson(entry.getKey(), entry.getValue()));
+    }
+    return json;
+  }
+
+  private static JsonObject toJson(long id, Event event) {
+    JsonObject when = new JsonObject();
+    when.addProperty("start", event.getWhen().start());
+    when.addProperty("duration", event.getWhen().duration());
+
+    JsonArray attendees = new JsonArray();
+    for (String attendee : event.getAttendees()) {
+      attendees.add(attendee);
+    }
+
+    JsonObject json = new JsonObject();
+    json.addProperty("id", id);
+    json.addProperty("title", event.getTitle());
+    json.add("when", when);
+    json.add("attendees", attendees);
+    return json;
+  }
+}
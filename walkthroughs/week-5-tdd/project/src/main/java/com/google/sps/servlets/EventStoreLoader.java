@@ -0,0 +1,59 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.DatastoreEvents;
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import java.util.Map;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Fills the event store from Datastore when the app starts and saves every later change back to
+ * Datastore. Queries are then answered from memory only. The first time the app runs Datastore is
+ * empty, so the sample events the store starts with are saved instead.
+ *
+ * <p>Since queries never go back to Datastore, the app must only run on one instance at a time,
+ * which appengine-web.xml enforces with manual scaling.
+ */
+@WebListener
+public class EventStoreLoader implements ServletContextListener {
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    EventStore store = EventStore.getInstance();
+    DatastoreEvents datastoreEvents = new DatastoreEvents();
+
+    Map<Long, Event> savedEvents = datastoreEvents.loadAll();
+    if (savedEvents.isEmpty()) {
+      savedEvents = store.getEvents();
+      datastoreEvents.putAll(savedEvents);
+    } else {
+      store.load(savedEvents);
+    }
+    // Ids picked by the store itself must not be allocated again for new events.
+    long maxId = 0;
+    for (long id : savedEvents.keySet()) {
+      maxId = Math.max(maxId, id);
+    }
+    datastoreEvents.reserveIds(maxId);
+
+    store.setPersistence(datastoreEvents);
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {}
+}
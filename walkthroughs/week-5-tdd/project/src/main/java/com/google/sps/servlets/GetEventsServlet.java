@@ -14,20 +14,67 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
+import com.google.sps.Event;
+import com.google.sps.EventSnapshot;
+import com.google.sps.EventStore;
+import com.google.sps.TimeRange;
 import com.google.gson.Gson;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Servlet that lists events. Without parameters it returns every event. With {@code from} and
+ * {@code to}, in minutes since the start of the day, it only returns the events that overlap that
+ * window; either one can be left out to leave the window open on that side. With {@code attendee},
+ * it only returns the events that person is attending.
+ */
 @WebServlet("/get-events")
 public class GetEventsServlet extends HttpServlet {
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String fromParameter = request.getParameter("from");
+    String toParameter = request.getParameter("to");
+    String attendee = request.getParameter("attendee");
+
+    EventSnapshot snapshot = EventStore.getInstance().getSnapshot();
+    Map<Long, Event> events;
+    if (fromParameter == null && toParameter == null && attendee == null) {
+      events = snapshot.getEvents();
+    } else {
+      int from;
+      int to;
+      try {
+        from = fromParameter == null ? TimeRange.START_OF_DAY : Integer.parseInt(fromParameter);
+        to = toParameter == null ? TimeRange.WHOLE_DAY.end() : Integer.parseInt(toParameter);
+      } catch (NumberFormatException e) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid from or to.");
+        return;
+      }
+      if (from < 0 || to < from) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+            "from must not be negative and must not come after to.");
+        return;
+      }
+
+      events = snapshot.getTree().overlapping(TimeRange.fromStartEnd(from, to, false));
+      if (attendee != null) {
+        // The index already knows the attendee's events, so there is no need to look through the
+        // attendees of every event in the window.
+        Set<Event> attending = Collections.newSetFromMap(new IdentityHashMap<>());
+        attending.addAll(snapshot.getIndex().eventsFor(Collections.singleton(attendee)));
+        events.values().removeIf(event -> !attending.contains(event));
+      }
+    }
+
     Gson gson = new Gson();
-    String jsonResponse = gson.toJson(Events.events);
+    String jsonResponse = gson.toJson(EventJson.toJson(events));
 
     // Send the JSON back as the response
     response.setContentType("application/json");
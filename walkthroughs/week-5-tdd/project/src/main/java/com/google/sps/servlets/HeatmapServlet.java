@@ -0,0 +1,74 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.AvailabilityHeatmap;
+import com.google.sps.EventStore;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that returns how many of a group of people are free during each part of the day. The
+ * people are given as repeated {@code attendee} parameters and the length of each part in minutes
+ * as {@code bucket}, which defaults to 30. The response looks like
+ * {@code {"bucket": 30, "attendees": 12, "free": [12, 12, ..., 9, ...]}}.
+ */
+@WebServlet("/heatmap")
+public class HeatmapServlet extends HttpServlet {
+  private static final int DEFAULT_BUCKET_MINUTES = 30;
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    int bucketMinutes;
+    try {
+      String parameter = request.getParameter("bucket");
+      bucketMinutes = parameter == null ? DEFAULT_BUCKET_MINUTES : Integer.parseInt(parameter);
+    } catch (NumberFormatException e) {
+      bucketMinutes = 0;
+    }
+    if (bucketMinutes <= 0 || bucketMinutes > TimeRange.WHOLE_DAY.duration()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+          "bucket must be a number of minutes no longer than a day.");
+      return;
+    }
+
+    String[] parameters = request.getParameterValues("attendee");
+    List<String> attendees =
+        parameters == null ? Collections.<String>emptyList() : Arrays.asList(parameters);
+    int[] free = AvailabilityHeatmap.freeCounts(
+        EventStore.getInstance().getIndex(), attendees, bucketMinutes);
+
+    response.setContentType("application/json");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    writer.beginObject();
+    writer.name("bucket").value(bucketMinutes);
+    writer.name("attendees").value(attendees.stream().distinct().count());
+    writer.name("free").beginArray();
+    for (int count : free) {
+      writer.value(count);
+    }
+    writer.endArray();
+    writer.endObject();
+    writer.flush();
+  }
+}
@@ -0,0 +1,50 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.CalendarFormat;
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import java.io.IOException;
+import java.util.Map;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that adds every event of a calendar in {@link CalendarFormat} to the scheduler, as one
+ * change. The events get new ids, so the ids in the calendar are not kept. Responds with the number
+ * of events added.
+ */
+@WebServlet("/import-events")
+public class ImportEventsServlet extends HttpServlet {
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Map<Long, Event> events;
+    try {
+      events = CalendarFormat.read(request.getInputStream());
+    } catch (IOException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid calendar: " + e.getMessage());
+      return;
+    }
+
+    long[] ids = EventStore.getInstance().addAll(events.values());
+
+    response.setContentType("application/json");
+    response.getWriter().println(ids.length);
+  }
+}
@@ -0,0 +1,145 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads meeting requests and writes their answers as JSON one token at a time, without going
+ * through reflection or building the whole document in memory first. The JSON is the same as what
+ * {@code Gson} produces for {@link MeetingRequest} and {@link TimeRange}: a request looks like
+ * {@code {"attendees": [...], "optional_attendees": [...], "duration": 30}} and a time range like
+ * {@code {"start": 480, "duration": 30}}.
+ */
+final class QueryJson {
+  private QueryJson() {
+    // Disallow instances.
+  }
+
+  /**
+   * Reads one meeting request. Missing attendee lists are treated as empty and unknown fields are
+   * skipped.
+   *
+   * @throws JsonParseException if the JSON is malformed or is not a meeting request.
+   */
+  static MeetingRequest readRequest(JsonReader in) throws IOException {
+    try {
+      return readRequestObject(in);
+    } catch (MalformedJsonException | EOFException | IllegalStateException
+        | NumberFormatException e) {
+      throw new JsonParseException("Expected a meeting request.", e);
+    }
+  }
+
+  /**
+   * Reads a JSON array of meeting requests.
+   *
+   * @throws JsonParseException if the JSON is malformed or is not an array of meeting requests.
+   */
+  static List<MeetingRequest> readRequests(JsonReader in) throws IOException {
+    try {
+      List<MeetingRequest> requests = new ArrayList<>();
+      in.beginArray();
+      while (in.hasNext()) {
+        requests.add(readRequestObject(in));
+      }
+      in.endArray();
+      return requests;
+    } catch (MalformedJsonException | EOFException | IllegalStateException
+        | NumberFormatException e) {
+      throw new JsonParseException("Expected an array of meeting requests.", e);
+    }
+  }
+
+  /**
+   * Writes the time ranges as a JSON array.
+   */
+  static void writeTimeRanges(JsonWriter out, Collection<TimeRange> ranges) throws IOException {
+    out.beginArray();
+    for (TimeRange range : ranges) {
+      out.beginObject();
+      out.name("start").value(range.start());
+      out.name("duration").value(range.duration());
+      out.endObject();
+    }
+    out.endArray();
+  }
+
+  /**
+   * Writes a JSON array holding one array of time ranges per answer.
+   */
+  static void writeAnswers(JsonWriter out, List<Collection<TimeRange>> answers)
+      throws IOException {
+    out.beginArray();
+    for (Collection<TimeRange> answer : answers) {
+      writeTimeRanges(out, answer);
+    }
+    out.endArray();
+  }
+
+  private static MeetingRequest readRequestObject(JsonReader in) throws IOException {
+    List<String> attendees = new ArrayList<>();
+    List<String> optionalAttendees = new ArrayList<>();
+    long duration = 0;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      String name = in.nextName();
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        continue;
+      }
+      switch (name) {
+        case "attendees":
+          readStrings(in, attendees);
+          break;
+        case "optional_attendees":
+          readStrings(in, optionalAttendees);
+          break;
+        case "duration":
+          duration = in.nextLong();
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    MeetingRequest request = new MeetingRequest(attendees, duration);
+    for (String attendee : optionalAttendees) {
+      request.addOptionalAttendee(attendee);
+    }
+    return request;
+  }
+
+  private static void readStrings(JsonReader in, List<String> strings) throws IOException {
+    in.beginArray();
+    while (in.hasNext()) {
+      strings.add(in.nextString());
+    }
+    in.endArray();
+  }
+}
@@ -0,0 +1,79 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.EventStore;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.RankedSlot;
+import com.google.sps.TimeRange;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that suggests the best meeting times for a request, best first, each with its score. The
+ * number of suggestions is given by the {@code k} parameter, defaults to 5 and can be at most
+ * 100.
+ */
+@WebServlet("/query-ranked")
+public class RankedQueryServlet extends HttpServlet {
+  private static final int DEFAULT_K = 5;
+
+  // Keeps a single request from asking for more suggestions than anyone could read.
+  private static final int MAX_K = 100;
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    int k;
+    try {
+      String parameter = request.getParameter("k");
+      k = parameter == null ? DEFAULT_K : Integer.parseInt(parameter);
+    } catch (NumberFormatException e) {
+      k = 0;
+    }
+    if (k <= 0 || k > MAX_K) {
+      response.sendError(
+          HttpServletResponse.SC_BAD_REQUEST, "k must be a number from 1 to " + MAX_K + ".");
+      return;
+    }
+
+    Gson gson = new Gson();
+
+    // Convert the JSON to an instance of MeetingRequest.
+    MeetingRequest meetingRequest = gson.fromJson(request.getReader(), MeetingRequest.class);
+    if (meetingRequest == null || meetingRequest.getDuration() < 0
+        || meetingRequest.getDuration() > TimeRange.WHOLE_DAY.duration()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+          "duration must be between 0 and " + TimeRange.WHOLE_DAY.duration() + " minutes.");
+      return;
+    }
+
+    // Score the possible meeting times and keep the best ones.
+    List<RankedSlot> answer = new FindMeetingQuery()
+        .queryRanked(EventStore.getInstance().getIndex(), meetingRequest, k);
+
+    // Convert the slots to JSON
+    String jsonResponse = gson.toJson(answer);
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.getWriter().println(jsonResponse);
+  }
+}
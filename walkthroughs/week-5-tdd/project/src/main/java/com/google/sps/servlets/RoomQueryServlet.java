@@ -0,0 +1,56 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.EventStore;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.RoomSlot;
+import com.google.sps.Rooms;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that finds meeting times like {@code /query}, but only returns times at which a room big
+ * enough for everyone is also free, together with that room.
+ */
+@WebServlet("/query-room")
+public class RoomQueryServlet extends HttpServlet {
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Gson gson = new Gson();
+
+    // Convert the JSON to an instance of MeetingRequest.
+    MeetingRequest meetingRequest = gson.fromJson(request.getReader(), MeetingRequest.class);
+
+    // Find the possible meeting times and rooms.
+    FindMeetingQuery query = new FindMeetingQuery();
+    List<RoomSlot> answer = query.queryWithRoom(
+        EventStore.getInstance().getIndex(), Arrays.asList(Rooms.rooms), meetingRequest);
+
+    // Convert the slots to JSON
+    String jsonResponse = gson.toJson(answer);
+
+    // Send the JSON back as the response
+    response.setContentType("application/json");
+    response.getWriter().println(jsonResponse);
+  }
+}
@@ -0,0 +1,60 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class AttendeeDictionaryTest {
+  private static final AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+
+  @Test
+  public void sameNameGetsSameId() {
+    int id = dictionary.idOf("AttendeeDictionaryTest A");
+
+    Assert.assertEquals(id, dictionary.idOf("AttendeeDictionaryTest A"));
+    Assert.assertEquals(id, dictionary.lookup("AttendeeDictionaryTest A"));
+    Assert.assertEquals("AttendeeDictionaryTest A", dictionary.nameOf(id));
+  }
+
+  @Test
+  public void idsOfAreSortedAndUnique() {
+    int b = dictionary.idOf("AttendeeDictionaryTest B");
+    int c = dictionary.idOf("AttendeeDictionaryTest C");
+
+    int[] actual = dictionary.idsOf(Arrays.asList(
+        "AttendeeDictionaryTest C", "AttendeeDictionaryTest B", "AttendeeDictionaryTest C"));
+    int[] expected = {Math.min(b, c), Math.max(b, c)};
+
+    Assert.assertArrayEquals(expected, actual);
+  }
+
+  @Test
+  public void lookupDoesNotAddNames() {
+    int sizeBefore = dictionary.size();
+
+    int[] actual = dictionary.lookupAll(Arrays.asList("AttendeeDictionaryTest Nobody"));
+
+    Assert.assertEquals(AttendeeDictionary.UNKNOWN,
+        dictionary.lookup("AttendeeDictionaryTest Nobody"));
+    Assert.assertEquals(0, actual.length);
+    Assert.assertEquals(sizeBefore, dictionary.size());
+  }
+}
@@ -0,0 +1,89 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class AvailabilityHeatmapTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_NOBODY = "Person Nobody";
+
+  private static final int BUCKET_60_MINUTES = 60;
+
+  @Test
+  public void countsFreePeoplePerBucket() {
+    // Person A is busy from 9:15 to 9:45 and again from 9:50 to 10:00, which only makes them busy
+    // during the 9 o'clock bucket. Person B is busy from 9:30 to 11:00.
+    List<Event> events = Arrays.asList(
+        new Event("A1", TimeRange.fromStartEnd(555, 585, false), Arrays.asList(PERSON_A)),
+        new Event("A2", TimeRange.fromStartEnd(590, 600, false), Arrays.asList(PERSON_A)),
+        new Event("B", TimeRange.fromStartEnd(570, 660, false), Arrays.asList(PERSON_B)));
+
+    int[] free = AvailabilityHeatmap.freeCounts(new EventIndex(events),
+        Arrays.asList(PERSON_A, PERSON_B, PERSON_NOBODY, PERSON_A), BUCKET_60_MINUTES);
+
+    Assert.assertEquals(24, free.length);
+    Assert.assertEquals(3, free[8]);
+    Assert.assertEquals(1, free[9]);
+    Assert.assertEquals(2, free[10]);
+    Assert.assertEquals(3, free[11]);
+  }
+
+  @Test
+  public void matchesCheckingEveryBucketAgainstEveryEvent() {
+    Random random = new Random(3);
+    List<String> people = new ArrayList<>();
+    List<Event> events = new ArrayList<>();
+    for (int person = 0; person < 20; person++) {
+      people.add("Heatmap person " + person);
+    }
+    for (int i = 0; i < 300; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = random.nextInt(90);
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          Arrays.asList(people.get(random.nextInt(20)), people.get(random.nextInt(20)))));
+    }
+    int bucketMinutes = 25;
+
+    int[] actual = AvailabilityHeatmap.freeCounts(new EventIndex(events), people, bucketMinutes);
+
+    for (int bucket = 0; bucket < actual.length; bucket++) {
+      TimeRange range = TimeRange.fromStartDuration(bucket * bucketMinutes,
+          Math.min(bucketMinutes, TimeRange.WHOLE_DAY.duration() - bucket * bucketMinutes));
+      int expected = 0;
+      for (String person : people) {
+        boolean free = true;
+        for (Event event : events) {
+          if (event.getAttendees().contains(person) && event.getWhen().duration() > 0
+              && event.getWhen().overlaps(range)) {
+            free = false;
+          }
+        }
+        expected += free ? 1 : 0;
+      }
+      Assert.assertEquals("bucket " + bucket, expected, actual[bucket]);
+    }
+  }
+}
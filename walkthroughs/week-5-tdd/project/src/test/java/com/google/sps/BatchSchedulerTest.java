@@ -0,0 +1,139 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class BatchSchedulerTest {
+  private static final String INTERVIEWER = "Batch interviewer";
+  private static final String PERSON_A = "Batch person A";
+  private static final String PERSON_B = "Batch person B";
+  private static final String PERSON_C = "Batch person C";
+
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+  private static final int TIME_1100AM = TimeRange.getTimeInMinutes(11, 0);
+
+  private static final int DURATION_60_MINUTES = 60;
+  private static final long BUDGET_MILLIS = 10_000;
+
+  // The interviewer is only free from 9:00 to 11:00.
+  private static final EventIndex INDEX = new EventIndex(Arrays.asList(
+      new Event("Before", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+          Arrays.asList(INTERVIEWER)),
+      new Event("After", TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true),
+          Arrays.asList(INTERVIEWER))));
+
+  @Test
+  public void placesMeetingsSharingAnAttendeeWithoutConflicts() {
+    // Person B is only free at 9:00, so the meeting with Person A has to go at 10:00 even though
+    // 9:00 is the earliest time that works for it on its own.
+    EventIndex index = INDEX.withEvent(new Event("B busy",
+        TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true),
+        Arrays.asList(PERSON_B)));
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(INTERVIEWER, PERSON_A), DURATION_60_MINUTES),
+        new MeetingRequest(Arrays.asList(INTERVIEWER, PERSON_B), DURATION_60_MINUTES));
+
+    BatchSchedule actual = new BatchScheduler().schedule(index, requests, BUDGET_MILLIS);
+
+    Assert.assertTrue(actual.isComplete());
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartDuration(TIME_1000AM, DURATION_60_MINUTES),
+            TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES)),
+        actual.getTimes());
+  }
+
+  @Test
+  public void keepsUnknownAttendeesOutOfTheDictionary() {
+    String stranger = "Batch stranger";
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(stranger), DURATION_60_MINUTES),
+        new MeetingRequest(Arrays.asList(stranger), DURATION_60_MINUTES));
+
+    BatchSchedule schedule = new BatchScheduler(60).schedule(INDEX, requests, BUDGET_MILLIS);
+
+    Assert.assertEquals(2, schedule.getPlaced());
+    Assert.assertFalse(schedule.getTimes().get(0).overlaps(schedule.getTimes().get(1)));
+    Assert.assertEquals(
+        AttendeeDictionary.UNKNOWN, AttendeeDictionary.getInstance().lookup(stranger));
+  }
+
+  @Test
+  public void placesAsManyMeetingsAsFit() {
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(INTERVIEWER, PERSON_A), DURATION_60_MINUTES),
+        new MeetingRequest(Arrays.asList(INTERVIEWER, PERSON_B), DURATION_60_MINUTES),
+        new MeetingRequest(Arrays.asList(INTERVIEWER, PERSON_C), DURATION_60_MINUTES));
+    List<Integer> progress = new ArrayList<>();
+
+    BatchSchedule actual = new BatchScheduler().schedule(INDEX, requests, BUDGET_MILLIS,
+        (placed, total, steps) -> progress.add(placed));
+
+    Assert.assertFalse(actual.isComplete());
+    Assert.assertTrue(actual.isExhaustive());
+    Assert.assertEquals(2, actual.getPlaced());
+    Assert.assertEquals(Arrays.asList(1, 2), progress);
+    Assert.assertEquals(1, Collections.frequency(actual.getTimes(), null));
+  }
+
+  @Test
+  public void leavesOutMeetingsThatDoNotFitAnywhere() {
+    // The interviewer is only free for two hours.
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(INTERVIEWER), 3 * DURATION_60_MINUTES),
+        new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES));
+
+    BatchSchedule actual = new BatchScheduler().schedule(INDEX, requests, BUDGET_MILLIS);
+
+    Assert.assertEquals(1, actual.getPlaced());
+    Assert.assertNull(actual.getTimes().get(0));
+    Assert.assertEquals(TimeRange.fromStartDuration(TimeRange.START_OF_DAY, DURATION_60_MINUTES),
+        actual.getTimes().get(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNegativeDurations() {
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(PERSON_A), -1_000_000_000_000L));
+
+    new BatchScheduler().schedule(INDEX, requests, BUDGET_MILLIS);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsMeetingsLongerThanADay() {
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(PERSON_A), TimeRange.WHOLE_DAY.duration() + 1));
+
+    new BatchScheduler().schedule(INDEX, requests, BUDGET_MILLIS);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsBatchesThatAreTooLarge() {
+    List<MeetingRequest> requests = Collections.nCopies(BatchScheduler.MAX_BATCH_SIZE + 1,
+        new MeetingRequest(Arrays.asList(PERSON_A), DURATION_60_MINUTES));
+
+    new BatchScheduler().schedule(INDEX, requests, BUDGET_MILLIS);
+  }
+}
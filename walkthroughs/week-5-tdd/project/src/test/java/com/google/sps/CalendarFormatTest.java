@@ -0,0 +1,137 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CalendarFormatTest {
+  private static final String PERSON_A = "Calendar person A";
+  private static final String PERSON_B = "Calendar person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  @Test
+  public void readsBackWhatWasWritten() throws IOException {
+    // Ids and starts go down as well as up, and one event has nobody attending.
+    Map<Long, Event> events = new LinkedHashMap<>();
+    events.put(42L, new Event("Réunion",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_B, PERSON_A)));
+    events.put(7L, new Event("Event 2",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A)));
+    events.put(100_000L, new Event("Event 3",
+        TimeRange.fromStartDuration(TimeRange.START_OF_DAY, 0), Collections.emptyList()));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CalendarFormat.write(events, out);
+    Map<Long, Event> actual = CalendarFormat.read(new ByteArrayInputStream(out.toByteArray()));
+
+    Assert.assertEquals(events, actual);
+    Assert.assertEquals(Arrays.asList(42L, 7L, 100_000L), Arrays.asList(actual.keySet().toArray()));
+  }
+
+  @Test
+  public void readsAttendeesListedInAnyOrder() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CalendarFormat.Writer writer =
+        new CalendarFormat.Writer(out, Arrays.asList(PERSON_B, PERSON_A), 1);
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_A, PERSON_B));
+    writer.write(1, event);
+    writer.flush();
+
+    CalendarFormat.Reader reader =
+        new CalendarFormat.Reader(new ByteArrayInputStream(out.toByteArray()));
+
+    Assert.assertEquals(event, reader.next().getValue());
+    Assert.assertFalse(reader.hasNext());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void writerRejectsUnlistedAttendees() throws IOException {
+    CalendarFormat.Writer writer = new CalendarFormat.Writer(
+        new ByteArrayOutputStream(), Arrays.asList(PERSON_A), 1);
+
+    writer.write(1, new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_B)));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsDataThatIsNotACalendar() throws IOException {
+    CalendarFormat.read(new ByteArrayInputStream("[{\"title\": \"x\"}]".getBytes("UTF-8")));
+  }
+
+  @Test(expected = EOFException.class)
+  public void rejectsTruncatedCalendars() throws IOException {
+    Map<Long, Event> events = Collections.singletonMap(1L, new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A)));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CalendarFormat.write(events, out);
+
+    byte[] bytes = out.toByteArray();
+    CalendarFormat.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3)));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsHugeAttendeeCounts() throws IOException {
+    // The magic, version 1 and 2^31 - 1 attendees, which would be a huge array if trusted.
+    byte[] bytes = {'S', 'P', 'S', 'C', 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 7};
+
+    CalendarFormat.read(new ByteArrayInputStream(bytes));
+  }
+
+  @Test
+  public void invalidCalendarsAddNoAttendees() throws IOException {
+    String ghost = "Calendar ghost";
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(new byte[] {'S', 'P', 'S', 'C', 1, 1, (byte) ghost.length()});
+    out.write(ghost.getBytes("UTF-8"));
+    // Two events with the ghost. The first is complete, the second is cut off before its attendee.
+    out.write(new byte[] {2, 2, 2, 60, 1, 'x', 1, 0, 2, 2, 60, 1, 'y', 1});
+
+    try {
+      CalendarFormat.read(new ByteArrayInputStream(out.toByteArray()));
+      Assert.fail("Expected the calendar to be rejected");
+    } catch (EOFException e) {
+      Assert.assertEquals(
+          AttendeeDictionary.UNKNOWN, AttendeeDictionary.getInstance().lookup(ghost));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsDuplicateIds() throws IOException {
+    // Two events under id 1: the second id is written as a difference of zero.
+    byte[] bytes = {'S', 'P', 'S', 'C', 1, 0, 2, 2, 2, 60, 1, 'x', 0, 0, 2, 60, 1, 'y', 0};
+
+    CalendarFormat.read(new ByteArrayInputStream(bytes));
+  }
+}
@@ -0,0 +1,106 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventIndexTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  @Test
+  public void eventsForSortsByStartAndSkipsDuplicates() {
+    Event shared = new Event("Shared",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_A, PERSON_B));
+    Event late = new Event("Late", TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_A));
+    Event early = new Event("Early", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_B));
+    EventIndex index = new EventIndex(Arrays.asList(shared, late, early));
+
+    List<Event> actual = index.eventsFor(Arrays.asList(PERSON_A, PERSON_B));
+    List<Event> expected = Arrays.asList(early, shared, late);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void eventsForIgnoresEmptyEventsAndOtherPeople() {
+    Event empty = new Event("Empty", TimeRange.fromStartDuration(TIME_0900AM, 0),
+        Arrays.asList(PERSON_A));
+    Event other = new Event("Other", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_C));
+    EventIndex index = new EventIndex(Arrays.asList(empty, other));
+
+    List<Event> actual = index.eventsFor(Arrays.asList(PERSON_A, PERSON_B));
+
+    Assert.assertTrue(actual.isEmpty());
+  }
+
+  @Test
+  public void withEventAndWithoutEventLeaveOriginalUnchanged() {
+    Event first = new Event("First", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_A));
+    Event second = new Event("Second",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_A, PERSON_B));
+    EventIndex original = new EventIndex(Arrays.asList(first));
+
+    EventIndex added = original.withEvent(second);
+    EventIndex removed = added.withoutEvent(first);
+
+    Assert.assertEquals(Arrays.asList(first), original.eventsFor(Arrays.asList(PERSON_A)));
+    Assert.assertEquals(Arrays.asList(first, second), added.eventsFor(Arrays.asList(PERSON_A)));
+    Assert.assertEquals(Arrays.asList(second), removed.eventsFor(Arrays.asList(PERSON_A)));
+    Assert.assertEquals(Arrays.asList(second), removed.eventsFor(Arrays.asList(PERSON_B)));
+  }
+
+  @Test
+  public void withEventsOnlyChangesTheNewEventsAttendees() {
+    Event first = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+    Event second = new Event("Event 2",
+        TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES), Arrays.asList(PERSON_C));
+    Event earlier = new Event("Event 3",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+    Event later = new Event("Event 4",
+        TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A));
+    EventIndex index = new EventIndex(Arrays.asList(first, second));
+    int[] personC = {AttendeeDictionary.getInstance().lookup(PERSON_C)};
+
+    EventIndex updated = index.withEvents(Arrays.asList(later, earlier));
+
+    Assert.assertEquals(Arrays.asList(earlier, first, later),
+        updated.eventsFor(Arrays.asList(PERSON_A)));
+    Assert.assertEquals(Arrays.asList(first), index.eventsFor(Arrays.asList(PERSON_A)));
+    Assert.assertEquals(index.versionOf(personC), updated.versionOf(personC));
+  }
+}
@@ -0,0 +1,263 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventStoreTest {
+  private static final Collection<String> PERSON_A = Arrays.asList("Person A");
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  private EventStore store;
+
+  @Before
+  public void setUp() {
+    store = new EventStore();
+  }
+
+  @Test
+  public void addedEventIsVisibleInIndex() {
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A);
+
+    long id = store.add(event);
+
+    Assert.assertEquals(event, store.getEvent(id));
+    Assert.assertEquals(Arrays.asList(event), store.getIndex().eventsFor(PERSON_A));
+  }
+
+  @Test
+  public void updateReplacesEventAndKeepsOldIndex() {
+    Event before = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A);
+    Event after = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), PERSON_A);
+    long id = store.add(before);
+    EventIndex oldIndex = store.getIndex();
+
+    Assert.assertTrue(store.update(id, after));
+
+    Assert.assertEquals(Arrays.asList(after), store.getIndex().eventsFor(PERSON_A));
+    Assert.assertEquals(Arrays.asList(before), oldIndex.eventsFor(PERSON_A));
+  }
+
+  @Test
+  public void removeDropsEvent() {
+    long id = store.add(new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A));
+
+    Assert.assertTrue(store.remove(id));
+
+    Assert.assertFalse(store.remove(id));
+    Assert.assertEquals(Collections.emptyMap(), store.getEvents());
+    Assert.assertTrue(store.getIndex().eventsFor(PERSON_A).isEmpty());
+  }
+
+  @Test
+  public void unknownIdsAreRejected() {
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A);
+
+    Assert.assertFalse(store.update(42, event));
+    Assert.assertFalse(store.remove(42));
+  }
+
+  @Test
+  public void changesArePassedToPersistence() {
+    List<String> saved = new ArrayList<>();
+    store.setPersistence(new EventStore.Persistence() {
+      @Override
+      public void put(long id, Event event) {
+        saved.add("put " + id);
+      }
+
+      @Override
+      public void delete(long id) {
+        saved.add("delete " + id);
+      }
+    });
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A);
+
+    long id = store.add(event);
+    store.update(id, event);
+    store.remove(id);
+
+    Assert.assertEquals(Arrays.asList("put " + id, "put " + id, "delete " + id), saved);
+  }
+
+  @Test
+  public void loadKeepsIdsAndContinuesAfterThem() {
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A);
+    Map<Long, Event> saved = new HashMap<>();
+    saved.put(7L, event);
+
+    store.load(saved);
+    long id = store.add(event);
+
+    Assert.assertEquals(event, store.getEvent(7));
+    Assert.assertEquals(8, id);
+    Assert.assertEquals(Arrays.asList(event, event), store.getIndex().eventsFor(PERSON_A));
+  }
+
+  @Test
+  public void loadKeepsChangesMadeWhileLoading() {
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A);
+    Event concurrent = new Event("Event 2",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), PERSON_A);
+    store.add(event);
+    store.add(event);
+    long[] concurrentId = new long[1];
+    // Adds an event while the load is reading the saved events.
+    Map<Long, Event> saved = new AbstractMap<Long, Event>() {
+      @Override
+      public Set<Map.Entry<Long, Event>> entrySet() {
+        if (concurrentId[0] == 0) {
+          concurrentId[0] = store.add(concurrent);
+        }
+        return Collections.singletonMap(1L, event).entrySet();
+      }
+    };
+
+    store.load(saved);
+    long id = store.add(event);
+
+    Assert.assertEquals(3, concurrentId[0]);
+    Assert.assertEquals(event, store.getEvent(1));
+    Assert.assertNull(store.getEvent(2));
+    Assert.assertEquals(concurrent, store.getEvent(3));
+    Assert.assertEquals(4, id);
+  }
+
+  @Test
+  public void treeIsRebuiltAfterWrites() {
+    long first = store.add(new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A));
+    EventTree oldTree = store.getTree();
+
+    long second = store.add(new Event("Event 2",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), PERSON_A));
+
+    Assert.assertEquals(1, oldTree.size());
+    Assert.assertEquals(Arrays.asList(first, second),
+        new ArrayList<>(store.getTree().overlapping(TimeRange.WHOLE_DAY).keySet()));
+  }
+
+  @Test
+  public void treeFollowsEveryKindOfWrite() {
+    long first = store.add(new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A));
+    long second = store.add(new Event("Event 2",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), PERSON_A));
+    store.getTree();
+
+    store.update(first, new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES), PERSON_A));
+    store.remove(second);
+    long[] added = store.addAll(Arrays.asList(new Event("Event 3",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A)));
+
+    Assert.assertEquals(Arrays.asList(added[0], first),
+        new ArrayList<>(store.getTree().overlapping(TimeRange.WHOLE_DAY).keySet()));
+  }
+
+  @Test
+  public void snapshotIsNotChangedByLaterWrites() {
+    Event first = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A);
+    Event second = new Event("Event 2",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), PERSON_A);
+    long id = store.add(first);
+    EventSnapshot snapshot = store.getSnapshot();
+
+    store.add(second);
+    store.remove(id);
+
+    Assert.assertEquals(Collections.singletonMap(id, first), snapshot.getEvents());
+    Assert.assertEquals(Arrays.asList(first), snapshot.getIndex().eventsFor(PERSON_A));
+    Assert.assertEquals(1, snapshot.getTree().size());
+    Assert.assertTrue(store.getSnapshot().getVersion() > snapshot.getVersion());
+    Assert.assertEquals(Arrays.asList(second), store.getIndex().eventsFor(PERSON_A));
+  }
+
+  @Test
+  public void snapshotListsEventsInOrderOfId() {
+    Event event = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A);
+    Map<Long, Event> saved = new HashMap<>();
+    saved.put(100_000L, event);
+    saved.put(3L, event);
+    saved.put(700L, event);
+    store.load(saved);
+
+    store.remove(700);
+    long id = store.add(event);
+
+    Assert.assertEquals(Arrays.asList(3L, 100_000L, id),
+        new ArrayList<>(store.getEvents().keySet()));
+    Assert.assertNull(store.getEvent(700));
+    Assert.assertEquals(3, store.getSnapshot().size());
+  }
+
+  @Test
+  public void addAllAddsEveryEventInOneChange() {
+    Event first = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A);
+    Event second = new Event("Event 2",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), PERSON_A);
+    List<Long> saved = new ArrayList<>();
+    store.setPersistence(new EventStore.Persistence() {
+      @Override
+      public void put(long id, Event event) {
+        saved.add(id);
+      }
+
+      @Override
+      public void delete(long id) {}
+    });
+    long existing = store.add(first);
+    long version = store.getSnapshot().getVersion();
+
+    long[] ids = store.addAll(Arrays.asList(second, first));
+
+    Assert.assertArrayEquals(new long[] {existing + 1, existing + 2}, ids);
+    Assert.assertEquals(Arrays.asList(existing, existing + 1, existing + 2), saved);
+    Assert.assertEquals(version + 1, store.getSnapshot().getVersion());
+    Assert.assertEquals(second, store.getEvent(existing + 1));
+    Assert.assertEquals(Arrays.asList(first, first, second), store.getIndex().eventsFor(PERSON_A));
+  }
+}
@@ -0,0 +1,152 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventTreeTest {
+  private static final Collection<String> PERSON_A = Arrays.asList("Person A");
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_2_HOURS = 120;
+
+  @Test
+  public void overlappingLeavesOutEventsThatOnlyTouchTheWindow() {
+    Map<Long, Event> events = new LinkedHashMap<>();
+    events.put(1L, new Event("Before",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A));
+    events.put(2L, new Event("Inside",
+        TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES), PERSON_A));
+    events.put(3L, new Event("After",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES), PERSON_A));
+    EventTree tree = new EventTree(events);
+
+    Map<Long, Event> actual =
+        tree.overlapping(TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false));
+
+    Assert.assertEquals(Arrays.asList(2L), new ArrayList<>(actual.keySet()));
+  }
+
+  @Test
+  public void atFindsLongEventsThatStartedEarlier() {
+    Map<Long, Event> events = new LinkedHashMap<>();
+    events.put(1L, new Event("Long",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_2_HOURS), PERSON_A));
+    events.put(2L, new Event("Short",
+        TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES), PERSON_A));
+    EventTree tree = new EventTree(events);
+
+    Assert.assertEquals(Arrays.asList(1L), new ArrayList<>(tree.at(TIME_0900AM).keySet()));
+    Assert.assertTrue(tree.at(TIME_1000AM).isEmpty());
+  }
+
+  @Test
+  public void overlappingMatchesCheckingEveryEvent() {
+    Random random = new Random(42);
+    Map<Long, Event> events = new LinkedHashMap<>();
+    for (long id = 1; id <= 500; id++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = random.nextInt(DURATION_2_HOURS);
+      events.put(id, new Event("Event " + id, TimeRange.fromStartDuration(start, duration),
+          PERSON_A));
+    }
+    EventTree tree = new EventTree(events);
+
+    for (int i = 0; i < 200; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      TimeRange window = TimeRange.fromStartDuration(start, random.nextInt(DURATION_2_HOURS));
+
+      List<Long> expected = new ArrayList<>();
+      for (Map.Entry<Long, Event> entry : events.entrySet()) {
+        if (entry.getValue().getWhen().overlaps(window)) {
+          expected.add(entry.getKey());
+        }
+      }
+      List<Long> actual = new ArrayList<>(tree.overlapping(window).keySet());
+      expected.sort(null);
+      actual.sort(null);
+
+      Assert.assertEquals(window.toString(), expected, actual);
+    }
+  }
+
+  @Test
+  public void withAndWithoutMatchBuildingAgain() {
+    Random random = new Random(7);
+    Map<Long, Event> events = new HashMap<>();
+    EventTree tree = EventTree.EMPTY;
+    for (int i = 0; i < 2000; i++) {
+      long id = 1 + random.nextInt(300);
+      Event previous = events.remove(id);
+      if (previous != null) {
+        tree = tree.without(id, previous);
+      }
+      if (previous == null || random.nextBoolean()) {
+        int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+        Event event = new Event("Event " + id,
+            TimeRange.fromStartDuration(start, random.nextInt(DURATION_2_HOURS)), PERSON_A);
+        events.put(id, event);
+        tree = tree.with(id, event);
+      }
+    }
+    EventTree rebuilt = new EventTree(events);
+
+    Assert.assertEquals(events.size(), tree.size());
+    Assert.assertEquals(new ArrayList<>(rebuilt.overlapping(TimeRange.WHOLE_DAY).keySet()),
+        new ArrayList<>(tree.overlapping(TimeRange.WHOLE_DAY).keySet()));
+    for (int i = 0; i < 200; i++) {
+      TimeRange window = TimeRange.fromStartDuration(
+          random.nextInt(TimeRange.WHOLE_DAY.duration()), random.nextInt(DURATION_2_HOURS));
+      Assert.assertEquals(window.toString(), rebuilt.overlapping(window), tree.overlapping(window));
+    }
+  }
+
+  @Test
+  public void withLeavesTheOldTreeAlone() {
+    Event first = new Event("First",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES), PERSON_A);
+    Event second = new Event("Second",
+        TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES), PERSON_A);
+    EventTree tree = EventTree.EMPTY.with(1L, first);
+
+    EventTree bigger = tree.with(2L, second);
+    EventTree smaller = bigger.without(1L, first);
+
+    Assert.assertEquals(Arrays.asList(1L),
+        new ArrayList<>(tree.overlapping(TimeRange.WHOLE_DAY).keySet()));
+    Assert.assertEquals(Arrays.asList(1L, 2L),
+        new ArrayList<>(bigger.overlapping(TimeRange.WHOLE_DAY).keySet()));
+    Assert.assertEquals(Arrays.asList(2L),
+        new ArrayList<>(smaller.overlapping(TimeRange.WHOLE_DAY).keySet()));
+  }
+}
@@ -14,11 +14,18 @@
 
 package com.google.sps;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -417,5 +424,225 @@ public final class FindMeetingQueryTest {
 
         Assert.assertEquals(expected, actual);
     }
-}
 
+    @Test
+    public void queryAllAnswersEachRequestInOrder() {
+        // Answering several requests against one index should give the same answers as asking
+        // for each request on its own.
+        Collection<Event> events = Arrays.asList(
+            new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+                Arrays.asList(PERSON_A)),
+            new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+                Arrays.asList(PERSON_B)));
+
+        MeetingRequest requestA = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+        MeetingRequest requestB = new MeetingRequest(Arrays.asList(PERSON_B), DURATION_30_MINUTES);
+        MeetingRequest requestAB =
+            new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+        List<Collection<TimeRange>> actual = query.queryAll(new EventIndex(events),
+            Arrays.asList(requestA, requestB, requestAB));
+        List<Collection<TimeRange>> expected = Arrays.asList(query.query(events, requestA),
+            query.query(events, requestB), query.query(events, requestAB));
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void recurringEventsOnlyBlockDaysTheyTakePlace() {
+        // A weekly meeting from 9 to 10 that started on day 0, skipping day 14
+        RecurringEvent weekly = new RecurringEvent("Weekly",
+            TimeRange.fromStartDuration(TIME_0900AM, DURATION_1_HOUR),
+            Recurrence.weekly(0).except(14), Arrays.asList(PERSON_A));
+        RecurringEventIndex recurring = new RecurringEventIndex(Arrays.asList(weekly));
+        EventIndex index = new EventIndex(NO_EVENTS);
+        MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+        Collection<TimeRange> busyDay = query.query(index, recurring, 7000, request);
+        Collection<TimeRange> skippedDay = query.query(index, recurring, 14, request);
+        Collection<TimeRange> otherDay = query.query(index, recurring, 7001, request);
+
+        Assert.assertEquals(Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, 
+            TIME_0900AM, false), TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true)),
+            busyDay);
+        Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), skippedDay);
+        Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), otherDay);
+    }
+
+    @Test
+    public void queryWithRoomPrefersSmallestFreeRoom() {
+        // Have each person have different events. The medium room is booked from 10 to 11, so the 
+        // big room is only used while the medium room is booked, not for the rest of the day the
+        // medium room already covers.
+        //
+        // Events  :       |--A--|
+        //                       |-M-|
+        // Day     : |-----------------------------|
+        // Options : |--M--|     |-B-|
+        //                           |--M----------|
+
+        Room tiny = new Room("Room T", 1);
+        Room medium = new Room("Room M", 4);
+        Room big = new Room("Room B", 10);
+        Collection<Event> events = Arrays.asList(
+            new Event("Event 1", TimeRange.fromStartDuration(TIME_0900AM, DURATION_1_HOUR),
+                Arrays.asList(PERSON_A)),
+            new Event("Event 2", TimeRange.fromStartDuration(TIME_1000AM, DURATION_1_HOUR),
+                Arrays.asList(medium.getName())));
+        MeetingRequest request =
+            new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+        List<RoomSlot> actual = query.queryWithRoom(new EventIndex(events), 
+            Arrays.asList(big, tiny, medium), request);
+        List<RoomSlot> expected = Arrays.asList(
+            new RoomSlot(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false), 
+                medium),
+            new RoomSlot(TimeRange.fromStartDuration(TIME_1000AM, DURATION_1_HOUR), big),
+            new RoomSlot(TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true), medium));
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void queryWithRoomFindsNothingWithoutBigEnoughRoom() {
+        MeetingRequest request =
+            new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B, PERSON_C), DURATION_30_MINUTES);
+
+        List<RoomSlot> actual = query.queryWithRoom(new EventIndex(NO_EVENTS), 
+            Arrays.asList(new Room("Room T", 2)), request);
+
+        Assert.assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    public void workingHoursInOtherTimeZonesBlockTime() {
+        // The calendar counts minutes in UTC. Person A works 9 to 5 in New York, which is 14:00 
+        // to 22:00 UTC in January. Person B works 9 to 5 in London, which is 9:00 to 17:00 UTC.
+        Map<String, WorkingHours> hours = new HashMap<>();
+        hours.put(PERSON_A, new WorkingHours(ZoneId.of("America/New_York"), LocalTime.of(9, 0), 
+            LocalTime.of(17, 0)));
+        hours.put(PERSON_B, new WorkingHours(ZoneId.of("Europe/London"), LocalTime.of(9, 0), 
+            LocalTime.of(17, 0)));
+        FindMeetingQuery zonedQuery = new FindMeetingQuery(
+            new WorkingHoursIndex(hours, LocalDate.of(2020, 1, 1), ZoneOffset.UTC));
+        MeetingRequest request =
+            new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+        Collection<TimeRange> actual = zonedQuery.query(NO_EVENTS, request);
+        Collection<TimeRange> expected = Arrays.asList(TimeRange.fromStartEnd(
+            TimeRange.getTimeInMinutes(14, 0), TimeRange.getTimeInMinutes(17, 0), false));
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void workingHoursPastMidnightWrapAroundTheDay() {
+        // A night shift from 22:00 to 06:00 in the calendar's own zone
+        Map<String, WorkingHours> hours = new HashMap<>();
+        hours.put(PERSON_A, new WorkingHours(ZoneOffset.UTC, LocalTime.of(22, 0), 
+            LocalTime.of(6, 0)));
+        FindMeetingQuery zonedQuery = new FindMeetingQuery(
+            new WorkingHoursIndex(hours, LocalDate.of(2020, 1, 1), ZoneOffset.UTC));
+        MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+        Collection<TimeRange> actual = zonedQuery.query(NO_EVENTS, request);
+        Collection<TimeRange> expected = Arrays.asList(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TimeRange.getTimeInMinutes(6, 0), false),
+            TimeRange.fromStartEnd(TimeRange.getTimeInMinutes(22, 0), TimeRange.END_OF_DAY, true));
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void queryRankedPrefersTimesOptionalAttendeesCanMake() {
+        // Person A is only free from 9 to 5. Optional Person B is busy from 9 to 10, so the best
+        // hour-long meetings are the earliest ones that B can make too.
+        Collection<Event> events = Arrays.asList(
+            new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+                Arrays.asList(PERSON_A)),
+            new Event("Event 2", TimeRange.fromStartEnd(TimeRange.getTimeInMinutes(17, 0), 
+                TimeRange.END_OF_DAY, true), Arrays.asList(PERSON_A)),
+            new Event("Event 3", TimeRange.fromStartDuration(TIME_0900AM, DURATION_1_HOUR),
+                Arrays.asList(PERSON_B)));
+        MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+        request.addOptionalAttendee(PERSON_B);
+
+        List<RankedSlot> actual = query.queryRanked(new EventIndex(events), request, 3);
+
+        List<TimeRange> actualTimes = new ArrayList<>();
+        for (RankedSlot slot : actual) {
+            actualTimes.add(slot.getWhen());
+            Assert.assertEquals(0, slot.getOptionalConflicts());
+        }
+        List<TimeRange> expectedTimes = Arrays.asList(
+            TimeRange.fromStartDuration(TIME_1000AM, DURATION_1_HOUR),
+            TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(10, 30), DURATION_1_HOUR),
+            TimeRange.fromStartDuration(TIME_1100AM, DURATION_1_HOUR));
+        Assert.assertEquals(expectedTimes, actualTimes);
+        Assert.assertTrue(actual.get(0).getScore() > actual.get(1).getScore());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void queryRankedRejectsNegativeDuration() {
+        MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), -1_000_000_000_000L);
+
+        query.queryRanked(new EventIndex(NO_EVENTS), request, 3);
+    }
+
+    @Test
+    public void queryRankedWithHugeKReturnsEveryCandidate() {
+        // Person A is only free from 9 to 5, which leaves room for an hour-long meeting starting
+        // every half hour from 9:00 to 16:00.
+        Collection<Event> events = Arrays.asList(
+            new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+                Arrays.asList(PERSON_A)),
+            new Event("Event 2", TimeRange.fromStartEnd(TimeRange.getTimeInMinutes(17, 0),
+                TimeRange.END_OF_DAY, true), Arrays.asList(PERSON_A)));
+        MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+
+        List<RankedSlot> actual =
+            query.queryRanked(new EventIndex(events), request, Integer.MAX_VALUE);
+
+        Assert.assertEquals(15, actual.size());
+    }
+
+    @Test
+    public void largeGroupGetsSameAnswerAsOnePersonWithAllTheirEvents() {
+        // Enough attendees and events for the busy times to be merged in parallel. Person C gets
+        // one event for each stretch of time during which anyone in the group is busy, which is 
+        // small enough to be merged on one thread.
+        Random random = new Random(7);
+        List<String> group = new ArrayList<>();
+        List<Event> events = new ArrayList<>();
+        boolean[] busy = new boolean[TimeRange.WHOLE_DAY.duration()];
+        for (int person = 0; person < 500; person++) {
+            String name = "Group member " + person;
+            group.add(name);
+            for (int i = 0; i < 40; i++) {
+                int start = random.nextInt(TimeRange.WHOLE_DAY.duration() - DURATION_30_MINUTES);
+                int duration = 1 + random.nextInt(4);
+                events.add(new Event("Event", TimeRange.fromStartDuration(start, duration),
+                    Arrays.asList(name)));
+                Arrays.fill(busy, start, start + duration, true);
+            }
+        }
+        for (int start = 0; start < busy.length; start++) {
+            if (busy[start]) {
+                int end = start;
+                while (end < busy.length && busy[end]) {
+                    end++;
+                }
+                events.add(new Event("Merged", TimeRange.fromStartEnd(start, end, false),
+                    Arrays.asList(PERSON_C)));
+                start = end;
+            }
+        }
+        EventIndex index = new EventIndex(events);
+
+        Collection<TimeRange> actual = query.query(index, new MeetingRequest(group, 5));
+        Collection<TimeRange> expected =
+            query.query(index, new MeetingRequest(Arrays.asList(PERSON_C), 5));
+
+        Assert.assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,115 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class IntervalsTest {
+  @Test
+  public void packedRangeKeepsStartAndEnd() {
+    long range = Intervals.of(90, 1440);
+
+    Assert.assertEquals(90, Intervals.start(range));
+    Assert.assertEquals(1440, Intervals.end(range));
+    Assert.assertEquals(1350, Intervals.length(range));
+  }
+
+  @Test
+  public void mergeJoinsOverlappingButNotTouchingRanges() {
+    long[] ranges = {
+        Intervals.of(0, 60), Intervals.of(30, 90), Intervals.of(40, 50), Intervals.of(90, 120)};
+
+    int count = Intervals.merge(ranges, ranges.length);
+
+    assertRanges(new long[] {Intervals.of(0, 90), Intervals.of(90, 120)}, ranges, count);
+  }
+
+  @Test
+  public void unionMergesSortedLists() {
+    long[] a = {Intervals.of(0, 30), Intervals.of(60, 90)};
+    long[] b = {Intervals.of(20, 40), Intervals.of(90, 100), Intervals.of(200, 300)};
+    long[] out = new long[a.length + b.length];
+
+    int count = Intervals.union(a, a.length, b, b.length, out);
+
+    assertRanges(new long[] {Intervals.of(0, 40), Intervals.of(60, 90), Intervals.of(90, 100),
+        Intervals.of(200, 300)}, out, count);
+  }
+
+  @Test
+  public void intersectKeepsSharedTimes() {
+    long[] a = {Intervals.of(0, 60), Intervals.of(100, 200)};
+    long[] b = {Intervals.of(30, 150)};
+    long[] out = new long[a.length + b.length];
+
+    int count = Intervals.intersect(a, a.length, b, b.length, out);
+
+    assertRanges(new long[] {Intervals.of(30, 60), Intervals.of(100, 150)}, out, count);
+  }
+
+  @Test
+  public void subtractCutsOutBusyTimes() {
+    long[] a = {Intervals.of(0, 100), Intervals.of(200, 300)};
+    long[] b = {Intervals.of(20, 30), Intervals.of(50, 220), Intervals.of(300, 400)};
+    long[] out = new long[a.length + b.length];
+
+    int count = Intervals.subtract(a, a.length, b, b.length, out);
+
+    assertRanges(new long[] {Intervals.of(0, 20), Intervals.of(30, 50), Intervals.of(220, 300)},
+        out, count);
+  }
+
+  @Test
+  public void gapsSkipsShortGapsAndClipsToBounds() {
+    long[] busy = {Intervals.of(0, 30), Intervals.of(40, 100), Intervals.of(200, 2000)};
+    long[] out = new long[busy.length + 1];
+
+    int count = Intervals.gaps(busy, busy.length, 0, 1440, 30, out);
+
+    assertRanges(new long[] {Intervals.of(100, 200)}, out, count);
+  }
+
+  @Test
+  public void gapsKeepsEmptyGapsBetweenTouchingRangesForZeroLength() {
+    // Leave room for the extra gap, since the gaps are written over the busy ranges.
+    long[] busy = {Intervals.of(0, 30), Intervals.of(30, 60), 0};
+
+    int count = Intervals.gaps(busy, 2, 0, 100, 0, busy);
+
+    assertRanges(new long[] {Intervals.of(0, 0), Intervals.of(30, 30), Intervals.of(60, 100)},
+        busy, count);
+  }
+
+  @Test
+  public void removeOverlappingDropsWholeRanges() {
+    long[] ranges = {Intervals.of(0, 30), Intervals.of(60, 120), Intervals.of(150, 150)};
+    long[] busy = {Intervals.of(100, 110), Intervals.of(140, 160)};
+
+    int count = Intervals.removeOverlapping(ranges, ranges.length, busy, busy.length, ranges);
+
+    assertRanges(new long[] {Intervals.of(0, 30)}, ranges, count);
+  }
+
+  private static void assertRanges(long[] expected, long[] actual, int count) {
+    Assert.assertEquals(Arrays.toString(expected),
+        Arrays.toString(Arrays.copyOf(actual, count)));
+  }
+}
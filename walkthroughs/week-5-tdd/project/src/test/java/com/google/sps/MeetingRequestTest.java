@@ -44,4 +44,29 @@ public final class MeetingRequestTest {
     int expected = 0;
     Assert.assertEquals(expected, actual);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void attendeeIdsAreResolvedOnce() {
+    AttendeeDictionary dictionary = AttendeeDictionary.getInstance();
+    dictionary.idOf(PERSON_A);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+
+    Assert.assertSame(request.getAttendeeIds(), request.getAttendeeIds());
+    Assert.assertArrayEquals(new int[] {dictionary.lookup(PERSON_A)}, request.getAttendeeIds());
+  }
+
+  @Test
+  public void attendeeIdsPickUpNamesThatGetAnIdLater() {
+    String newcomer = "Meeting request newcomer";
+    MeetingRequest request = new MeetingRequest(Arrays.asList(newcomer), DURATION_1_HOUR);
+    request.addOptionalAttendee(newcomer + " (optional)");
+    Assert.assertEquals(0, request.getAttendeeIds().length);
+    Assert.assertEquals(0, request.getOptionalAttendeeIds().length);
+
+    int id = AttendeeDictionary.getInstance().idOf(newcomer);
+    int optionalId = AttendeeDictionary.getInstance().idOf(newcomer + " (optional)");
+
+    Assert.assertArrayEquals(new int[] {id}, request.getAttendeeIds());
+    Assert.assertArrayEquals(new int[] {optionalId}, request.getOptionalAttendeeIds());
+  }
+}
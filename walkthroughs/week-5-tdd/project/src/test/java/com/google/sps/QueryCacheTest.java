@@ -0,0 +1,101 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class QueryCacheTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+
+  private static final int DURATION_30_MINUTES = 30;
+
+  private EventStore store;
+  private QueryCache cache;
+
+  @Before
+  public void setUp() {
+    store = new EventStore();
+    cache = new QueryCache(2);
+  }
+
+  @Test
+  public void equivalentRequestsHitTheCache() {
+    store.add(new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_A)));
+
+    Collection<TimeRange> first = cache.query(store.getIndex(),
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES));
+    Collection<TimeRange> second = cache.query(store.getIndex(),
+        new MeetingRequest(Arrays.asList(PERSON_B, PERSON_A), DURATION_30_MINUTES));
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, cache.getStats().getHits());
+    Assert.assertEquals(1, cache.getStats().getMisses());
+  }
+
+  @Test
+  public void changeToAttendeeInvalidatesOnlyTheirAnswers() {
+    MeetingRequest requestA = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    MeetingRequest requestB = new MeetingRequest(Arrays.asList(PERSON_B), DURATION_30_MINUTES);
+    store.add(new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_A)));
+    store.add(new Event("Event 2", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_B)));
+    cache.query(store.getIndex(), requestA);
+    cache.query(store.getIndex(), requestB);
+
+    store.add(new Event("Event 3", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+        Arrays.asList(PERSON_A)));
+    Collection<TimeRange> actualA = cache.query(store.getIndex(), requestA);
+    cache.query(store.getIndex(), requestB);
+
+    Assert.assertEquals(new FindMeetingQuery().query(store.getIndex(), requestA), actualA);
+    Assert.assertEquals(1, cache.getStats().getHits());
+    Assert.assertEquals(1, cache.getStats().getInvalidations());
+  }
+
+  @Test
+  public void leastRecentlyUsedAnswerIsEvicted() {
+    MeetingRequest requestA = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    MeetingRequest requestB = new MeetingRequest(Arrays.asList(PERSON_B), DURATION_30_MINUTES);
+    MeetingRequest requestAB =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    cache.query(store.getIndex(), requestA);
+    cache.query(store.getIndex(), requestB);
+    cache.query(store.getIndex(), requestA);
+    cache.query(store.getIndex(), requestAB);
+    cache.query(store.getIndex(), requestA);
+
+    QueryCache.Stats stats = cache.getStats();
+    Assert.assertEquals(2, stats.getSize());
+    Assert.assertEquals(1, stats.getEvictions());
+    Assert.assertEquals(2, stats.getHits());
+    Assert.assertEquals(0.4, stats.getHitRate(), 1e-9);
+  }
+}
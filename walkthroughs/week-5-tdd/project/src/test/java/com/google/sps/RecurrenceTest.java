@@ -0,0 +1,67 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class RecurrenceTest {
+  @Test
+  public void weeklyOccursEverySeventhDayFromFirstDay() {
+    Recurrence weekly = Recurrence.weekly(3);
+
+    Assert.assertFalse(weekly.occursOn(0));
+    Assert.assertTrue(weekly.occursOn(3));
+    Assert.assertFalse(weekly.occursOn(4));
+    Assert.assertTrue(weekly.occursOn(3 + 7 * 100_000));
+  }
+
+  @Test
+  public void untilAndExceptLimitTheDays() {
+    Recurrence daily = Recurrence.daily(0).until(5).except(2, 4, 2);
+
+    Assert.assertEquals(Arrays.asList(0, 1, 3, 5), toList(daily.occurrences(0, 100)));
+  }
+
+  @Test
+  public void occurrencesStartAtFirstMatchingDayInWindow() {
+    Recurrence everyThirdDay = Recurrence.every(3, 1).except(10);
+
+    Assert.assertEquals(Arrays.asList(7, 13), toList(everyThirdDay.occurrences(5, 15)));
+  }
+
+  @Test
+  public void occurrencesOfEndlessRuleNearLastDayStop() {
+    Recurrence daily = Recurrence.daily(0);
+
+    List<Integer> actual = toList(daily.occurrences(Integer.MAX_VALUE - 1, Integer.MAX_VALUE));
+
+    Assert.assertEquals(Arrays.asList(Integer.MAX_VALUE - 1, Integer.MAX_VALUE), actual);
+  }
+
+  private static List<Integer> toList(PrimitiveIterator.OfInt days) {
+    List<Integer> result = new ArrayList<>();
+    days.forEachRemaining((int day) -> result.add(day));
+    return result;
+  }
+}
@@ -0,0 +1,84 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class QueryJsonTest {
+  private final Gson gson = new Gson();
+
+  @Test
+  public void readRequestMatchesGson() throws IOException {
+    String json = "{\"duration\": 30, \"attendees\": [\"A\", \"B\"], \"ignored\": {\"x\": [1]},"
+        + " \"optional_attendees\": [\"C\"]}";
+
+    MeetingRequest actual = QueryJson.readRequest(new JsonReader(new StringReader(json)));
+    MeetingRequest expected = gson.fromJson(json, MeetingRequest.class);
+
+    Assert.assertEquals(expected.getDuration(), actual.getDuration());
+    Assert.assertEquals(
+        new HashSet<>(expected.getAttendees()), new HashSet<>(actual.getAttendees()));
+    Assert.assertEquals(new HashSet<>(expected.getOptionalAttendees()),
+        new HashSet<>(actual.getOptionalAttendees()));
+  }
+
+  @Test
+  public void readRequestsReadsEveryRequest() throws IOException {
+    String json = "[{\"duration\": 30, \"attendees\": [\"A\"]}, {\"duration\": 60}]";
+
+    List<MeetingRequest> actual = QueryJson.readRequests(new JsonReader(new StringReader(json)));
+
+    Assert.assertEquals(2, actual.size());
+    Assert.assertEquals(60, actual.get(1).getDuration());
+    Assert.assertTrue(actual.get(1).getAttendees().isEmpty());
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void readRequestRejectsWrongShape() throws IOException {
+    QueryJson.readRequest(new JsonReader(new StringReader("{\"attendees\": \"A\"}")));
+  }
+
+  @Test
+  public void writeAnswersMatchesGson() throws IOException {
+    List<Collection<TimeRange>> answers = Arrays.asList(
+        Arrays.asList(TimeRange.fromStartDuration(0, 30), TimeRange.WHOLE_DAY),
+        Arrays.asList());
+    StringWriter actual = new StringWriter();
+
+    JsonWriter writer = new JsonWriter(actual);
+    QueryJson.writeAnswers(writer, answers);
+    writer.flush();
+
+    Assert.assertEquals(gson.toJson(answers), actual.toString());
+  }
+}